@@ -3,6 +3,8 @@ package dev.frozenmilk.dairy.core
 import dev.frozenmilk.dairy.core.dependency.Dependency
 import dev.frozenmilk.dairy.core.wrapper.Wrapper
 import dev.frozenmilk.sinister.Preload
+import java.util.concurrent.Callable
+import java.util.concurrent.Future
 
 /**
  * Objects which implement this can run actions against a wide range of hooks into all OpModes
@@ -54,6 +56,15 @@ interface Feature {
 	 */
 	fun cleanup(opMode: Wrapper) {}
 
+	/**
+	 * runs [work] off of the OpMode thread, so that slow work, like I/O, can overlap with the rest of the OpMode
+	 *
+	 * the returned [Future] can be joined in a later hook, for example, work started in [postUserLoopHook] can be joined in the next [preUserLoopHook]
+	 *
+	 * work that hasn't finished by the time the OpMode has been cleaned up is cancelled
+	 */
+	fun <T> async(work: Callable<T>): Future<T> = FeatureRegistrar.submitAsync(this, work)
+
 	fun register(): Feature { return also { FeatureRegistrar.registerFeature(this) } }
 
 	fun deregister(): Feature { return also { FeatureRegistrar.deregisterFeature(this) } }
@@ -62,4 +73,18 @@ interface Feature {
 		@Suppress("INAPPLICABLE_JVM_NAME")
 		@JvmName("isActive")
 		get() = FeatureRegistrar.isFeatureActive(this)
+
+	/**
+	 * declares that a hook may be run at the same time as the same hook of other features, on another thread
+	 *
+	 * when put on a [Feature] class, applies to all of its hooks, when put on a hook, applies to only that hook
+	 *
+	 * [FeatureRegistrar] waits for all parallel hooks of a phase to finish before the phase ends,
+	 * so they will still be complete before the user's code runs, and before the next phase starts
+	 *
+	 * features that aren't marked as parallel safe are run on the OpMode thread, in the same order as always
+	 */
+	@Target(AnnotationTarget.CLASS, AnnotationTarget.FUNCTION)
+	@Retention(AnnotationRetention.RUNTIME)
+	annotation class ParallelSafe
 }
@@ -0,0 +1,91 @@
+package dev.frozenmilk.dairy.core
+
+import dev.frozenmilk.dairy.core.wrapper.Wrapper
+import dev.frozenmilk.sinister.inheritsAnnotation
+import java.util.concurrent.ConcurrentHashMap
+
+/**
+ * the hooks of [Feature] that [FeatureRegistrar] dispatches to
+ *
+ * @param reversed if the hook is run against the active features in reverse order
+ */
+internal enum class FeatureHook(val methodName: String, val reversed: Boolean) {
+	PRE_USER_INIT("preUserInitHook", false) {
+		override fun invoke(feature: Feature, opMode: Wrapper) = feature.preUserInitHook(opMode)
+	},
+	POST_USER_INIT("postUserInitHook", true) {
+		override fun invoke(feature: Feature, opMode: Wrapper) = feature.postUserInitHook(opMode)
+	},
+	PRE_USER_INIT_LOOP("preUserInitLoopHook", false) {
+		override fun invoke(feature: Feature, opMode: Wrapper) = feature.preUserInitLoopHook(opMode)
+	},
+	POST_USER_INIT_LOOP("postUserInitLoopHook", true) {
+		override fun invoke(feature: Feature, opMode: Wrapper) = feature.postUserInitLoopHook(opMode)
+	},
+	PRE_USER_START("preUserStartHook", false) {
+		override fun invoke(feature: Feature, opMode: Wrapper) = feature.preUserStartHook(opMode)
+	},
+	POST_USER_START("postUserStartHook", true) {
+		override fun invoke(feature: Feature, opMode: Wrapper) = feature.postUserStartHook(opMode)
+	},
+	PRE_USER_LOOP("preUserLoopHook", false) {
+		override fun invoke(feature: Feature, opMode: Wrapper) = feature.preUserLoopHook(opMode)
+	},
+	POST_USER_LOOP("postUserLoopHook", true) {
+		override fun invoke(feature: Feature, opMode: Wrapper) = feature.postUserLoopHook(opMode)
+	},
+	PRE_USER_STOP("preUserStopHook", false) {
+		override fun invoke(feature: Feature, opMode: Wrapper) = feature.preUserStopHook(opMode)
+	},
+	POST_USER_STOP("postUserStopHook", true) {
+		override fun invoke(feature: Feature, opMode: Wrapper) = feature.postUserStopHook(opMode)
+	},
+	CLEANUP("cleanup", true) {
+		override fun invoke(feature: Feature, opMode: Wrapper) = feature.cleanup(opMode)
+	};
+
+	private val mask = 1 shl ordinal
+
+	abstract fun invoke(feature: Feature, opMode: Wrapper)
+
+	/**
+	 * if [feature]'s class provides its own implementation of this hook, rather than using the empty default from [Feature]
+	 */
+	fun isOverriddenBy(feature: Feature) = masksOf(feature.javaClass).overridden and mask != 0
+
+	/**
+	 * if [feature] has declared that its implementation of this hook is [Feature.ParallelSafe]
+	 */
+	fun isParallelSafeFor(feature: Feature) = masksOf(feature.javaClass).parallelSafe and mask != 0
+
+	/**
+	 * @param overridden bitmask of the hooks a class overrides
+	 * @param parallelSafe bitmask of the hooks a class has declared to be [Feature.ParallelSafe]
+	 */
+	private class HookMasks(val overridden: Int, val parallelSafe: Int)
+
+	companion object {
+		/**
+		 * computed once per class
+		 */
+		private val masksCache = ConcurrentHashMap<Class<*>, HookMasks>()
+
+		private fun masksOf(cls: Class<out Feature>) = masksCache.getOrPut(cls) {
+			val classIsParallelSafe = cls.inheritsAnnotation(Feature.ParallelSafe::class.java)
+			var overridden = 0
+			var parallelSafe = 0
+			FeatureHook.entries.forEach { hook ->
+				val method = try {
+					cls.getMethod(hook.methodName, Wrapper::class.java)
+				}
+				catch (e: NoSuchMethodException) {
+					// we can't tell, so we have to assume it is overridden
+					null
+				}
+				if (method?.declaringClass != Feature::class.java) overridden = overridden or hook.mask
+				if (classIsParallelSafe || method?.isAnnotationPresent(Feature.ParallelSafe::class.java) == true) parallelSafe = parallelSafe or hook.mask
+			}
+			HookMasks(overridden, parallelSafe)
+		}
+	}
+}
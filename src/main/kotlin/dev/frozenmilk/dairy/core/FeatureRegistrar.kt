@@ -8,7 +8,18 @@ import com.qualcomm.robotcore.eventloop.opmode.OpModeManagerImpl
 import com.qualcomm.robotcore.eventloop.opmode.OpModeManagerNotifier
 import com.qualcomm.robotcore.util.RobotLog
 import dev.frozenmilk.dairy.core.dependency.resolution.DependencyResolutionException
+import dev.frozenmilk.dairy.core.dependency.resolution.ResolutionPlanCache
 import dev.frozenmilk.dairy.core.dependency.resolution.resolveDependencies
+import dev.frozenmilk.dairy.core.util.AllocationCounter
+import dev.frozenmilk.dairy.core.util.AllocationStats
+import dev.frozenmilk.dairy.core.util.GarbageCollector
+import dev.frozenmilk.dairy.core.util.GcPolicy
+import dev.frozenmilk.dairy.core.util.GcRecord
+import dev.frozenmilk.dairy.core.util.LatencyHistogram
+import dev.frozenmilk.dairy.core.util.LoopWatchdog
+import dev.frozenmilk.dairy.core.util.TimeSource
+import dev.frozenmilk.dairy.core.util.VirtualTimeSource
+import dev.frozenmilk.dairy.core.util.WeakIdentitySet
 import dev.frozenmilk.dairy.core.wrapper.LinearOpModeWrapper
 import dev.frozenmilk.dairy.core.wrapper.OpModeWrapper
 import dev.frozenmilk.dairy.core.wrapper.Wrapper
@@ -19,29 +30,74 @@ import dev.frozenmilk.util.cell.LazyCell
 import dev.frozenmilk.util.cell.MirroredCell
 import org.firstinspires.ftc.robotcore.internal.opmode.RegisteredOpModes
 import java.lang.ref.WeakReference
-import java.util.ArrayDeque
-import java.util.Queue
+import java.util.Collections
+import java.util.concurrent.Callable
+import java.util.concurrent.ConcurrentHashMap
+import java.util.concurrent.ConcurrentLinkedQueue
+import java.util.concurrent.Executors
+import java.util.concurrent.ForkJoinPool
+import java.util.concurrent.Future
+import java.util.concurrent.atomic.AtomicReference
 import kotlin.concurrent.Volatile
 
 object FeatureRegistrar : OpModeManagerNotifier.Notifications {
 	private const val TAG = "DairyCore"
 	/**
 	 * features that are registered to potentially become active
+	 *
+	 * held weakly, and compared by identity
 	 */
-	private var _registeredFeatures: MutableSet<WeakReference<Feature>> = mutableSetOf()
+	private val _registeredFeatures = WeakIdentitySet<Feature>()
 
 	/**
 	 * features that are registered to potentially become active.
 	 *
-	 * makes a copy of [_registeredFeatures]
+	 * makes a copy of [_registeredFeatures], does not include features whose registration is still queued
 	 */
 	@JvmStatic
-	val registeredFeatures: List<Feature> = _registeredFeatures.mapNotNull { it.get() }
+	val registeredFeatures: List<Feature>
+		get() = _registeredFeatures.toList()
+
+	/**
+	 * a queued request to register or deregister [feature]
+	 *
+	 * [next] links to the request queued before this one
+	 */
+	private class RegistrationRequest(val feature: WeakReference<Feature>, val register: Boolean) {
+		var next: RegistrationRequest? = null
+	}
 
 	/**
-	 * intermediary collection of features that need to be checked to be added to the active pool
+	 * intermediary collection of features that need to be checked to be added to, or removed from, the active pool
+	 *
+	 * the head of a lock-free stack of [RegistrationRequest]s, which may be pushed to from any thread,
+	 * but is only drained by [resolveRegistrationQueue] on the OpMode thread
 	 */
-	private val registrationQueue: Queue<Pair<WeakReference<Feature>, Boolean>> = ArrayDeque()
+	private val registrationQueue = AtomicReference<RegistrationRequest?>()
+
+	private fun enqueue(request: RegistrationRequest) {
+		while (true) {
+			val head = registrationQueue.get()
+			request.next = head
+			if (registrationQueue.compareAndSet(head, request)) return
+		}
+	}
+
+	/**
+	 * takes all pending requests, in the order they were queued
+	 */
+	private fun drainRegistrationQueue(): RegistrationRequest? {
+		var request = registrationQueue.getAndSet(null)
+		// the stack is newest first, so we reverse it
+		var ordered: RegistrationRequest? = null
+		while (request != null) {
+			val next = request.next
+			request.next = ordered
+			ordered = request
+			request = next
+		}
+		return ordered
+	}
 
 	/**
 	 * internal repr:
@@ -51,11 +107,316 @@ object FeatureRegistrar : OpModeManagerNotifier.Notifications {
 	private val _activeFeatures = LinkedHashSet<Feature>()
 
 	/**
-	 * creates a list of features that have been activated via [resolveDependencies]
+	 * immutable snapshot of [_activeFeatures], replaced whenever its membership changes
+	 */
+	@Volatile
+	private var activeFeaturesSnapshot: List<Feature> = emptyList()
+
+	/**
+	 * features that have been activated via [resolveDependencies]
+	 *
+	 * this is a shared immutable snapshot, it is not updated if features are activated or deactivated after it is retrieved
+	 */
+	@JvmStatic
+	val activeFeatures: List<Feature>
+		get() = activeFeaturesSnapshot
+
+	/**
+	 * incremented each time the membership of [activeFeatures] changes
+	 */
+	@JvmStatic
+	@Volatile
+	var activeFeaturesVersion = 0
+		private set
+
+	/**
+	 * for each [FeatureHook], the active features that override it, in the order the hook is run against them
+	 *
+	 * does not include features that are [Feature.ParallelSafe] for the hook
+	 *
+	 * rebuilt by [onActiveFeaturesChanged]
+	 */
+	private var dispatchTables = Array(FeatureHook.entries.size) { emptyArray<Feature>() }
+
+	/**
+	 * for each [FeatureHook], the active features that override it, and are [Feature.ParallelSafe] for it
+	 *
+	 * rebuilt by [onActiveFeaturesChanged]
+	 */
+	private var parallelDispatchTables = Array(FeatureHook.entries.size) { emptyArray<Feature>() }
+
+	/**
+	 * runs [Feature.ParallelSafe] hooks, bounded so that it doesn't compete with the OpMode thread for every core
+	 */
+	private val parallelHookPool by lazy {
+		ForkJoinPool((Runtime.getRuntime().availableProcessors() - 1).coerceIn(1, 4))
+	}
+
+	/**
+	 * runs work submitted by [Feature.async], so that it can overlap with the OpMode thread
+	 */
+	private val asyncExecutor by lazy {
+		Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors().coerceIn(2, 4)) { runnable ->
+			Thread(runnable, "DairyCore Feature Async").apply { isDaemon = true }
+		}
+	}
+
+	/**
+	 * work submitted by [Feature.async] that may not have finished, cancelled once the OpMode has been cleaned up
+	 */
+	private val asyncWork = ConcurrentLinkedQueue<AsyncWork>()
+
+	private class AsyncWork(val feature: Feature, val future: Future<*>)
+
+	/**
+	 * runs [work] for [feature] on an executor owned by the registrar
+	 *
+	 * if the work hasn't finished by the time the OpMode has been cleaned up, it is cancelled
+	 *
+	 * @see Feature.async
+	 */
+	@JvmStatic
+	fun <T> submitAsync(feature: Feature, work: Callable<T>): Future<T> {
+		// drop finished work, so that work submitted every loop doesn't pile up
+		val iterator = asyncWork.iterator()
+		while (iterator.hasNext()) if (iterator.next().future.isDone) iterator.remove()
+		val future = asyncExecutor.submit(work)
+		asyncWork.add(AsyncWork(feature, future))
+		return future
+	}
+
+	/**
+	 * cancels all unfinished work submitted by [feature], interrupting it if it is running
+	 */
+	@JvmStatic
+	fun cancelAsync(feature: Feature) {
+		val iterator = asyncWork.iterator()
+		while (iterator.hasNext()) {
+			val work = iterator.next()
+			if (work.feature !== feature) continue
+			work.future.cancel(true)
+			iterator.remove()
+		}
+	}
+
+	private fun cancelAllAsync() {
+		while (true) {
+			val work = asyncWork.poll() ?: return
+			if (!work.future.isDone) RobotLog.vv(TAG, "Cancelling unfinished work of Feature: ${work.feature::class.java.simpleName}")
+			work.future.cancel(true)
+		}
+	}
+
+	/**
+	 * must be called each time the membership of [_activeFeatures] changes, rebuilds the snapshots taken of it
+	 */
+	private fun onActiveFeaturesChanged() {
+		val forward = _activeFeatures.toTypedArray()
+		val reversed = forward.reversedArray()
+		val serial = arrayOfNulls<Array<Feature>>(FeatureHook.entries.size)
+		val parallel = arrayOfNulls<Array<Feature>>(FeatureHook.entries.size)
+		FeatureHook.entries.forEach { hook ->
+			val (parallelSafe, notParallelSafe) = (if (hook.reversed) reversed else forward)
+				.filter { hook.isOverriddenBy(it) }
+				.partition { hook.isParallelSafeFor(it) }
+			serial[hook.ordinal] = notParallelSafe.toTypedArray()
+			parallel[hook.ordinal] = parallelSafe.toTypedArray()
+		}
+		dispatchTables = serial.requireNoNulls()
+		parallelDispatchTables = parallel.requireNoNulls()
+		watchingLoops = _activeFeatures.contains(LoopWatchdog)
+		timingHooks = timeHooksAnnotated || watchingLoops
+		instrumentingHooks = timingHooks || countingAllocations
+		activeFeaturesSnapshot = Collections.unmodifiableList(forward.asList())
+		activeFeaturesVersion++
+	}
+
+	/**
+	 * if the current OpMode is annotated with [TimeHooks]
+	 */
+	private var timeHooksAnnotated = false
+
+	/**
+	 * if the [LoopWatchdog] is active, in which case each loop is timed and reported to it
+	 */
+	private var watchingLoops = false
+
+	/**
+	 * if hooks are being timed for the current OpMode, either because of [TimeHooks] or the [LoopWatchdog]
+	 */
+	private var timingHooks = false
+
+	/**
+	 * if the allocations made by hooks and the user's loop are being counted for the current OpMode, see [CountAllocations]
+	 */
+	private var countingAllocations = false
+
+	/**
+	 * if either [timingHooks] or [countingAllocations]
+	 */
+	private var instrumentingHooks = false
+
+	/**
+	 * [System.nanoTime] at the start of [opModePreLoop]
+	 */
+	private var loopStart = 0L
+
+	/**
+	 * [System.nanoTime] at the end of [opModePreLoop]
+	 */
+	private var userLoopStart = 0L
+
+	/**
+	 * [System.nanoTime] at the start of [opModePostLoop]
+	 */
+	private var userLoopEnd = 0L
+
+	/**
+	 * [AllocationCounter.currentThreadAllocatedBytes] at the end of [opModePreLoop]
+	 */
+	private var userLoopStartBytes = 0L
+
+	/**
+	 * per active feature, the allocations made by each [FeatureHook], by ordinal
+	 *
+	 * kept until the next OpMode starts
+	 */
+	private val allocations = ConcurrentHashMap<Feature, Array<AllocationStats>>()
+
+	private val _userLoopAllocations = AllocationStats()
+
+	/**
+	 * the allocations made by the user's loop in the current, or last, OpMode, if its allocations were counted, see [CountAllocations]
+	 */
+	@JvmStatic
+	val userLoopAllocations: AllocationStats
+		get() = _userLoopAllocations
+
+	/**
+	 * if the runtime can count the bytes allocated by a thread, which [CountAllocations] relies on
+	 */
+	@JvmStatic
+	val allocationCountingSupported
+		get() = AllocationCounter.supported
+
+	/**
+	 * the allocations made by the hooks run against each feature in the current, or last, OpMode, if its allocations were counted
+	 *
+	 * keyed by feature, then by the name of the hook, only includes hooks that were run
+	 */
+	@JvmStatic
+	fun hookAllocations(): Map<Feature, Map<String, AllocationStats>> = allocations.mapValues { (_, stats) ->
+		FeatureHook.entries
+			.filter { stats[it.ordinal].count != 0L }
+			.associate { it.methodName to stats[it.ordinal] }
+	}
+
+	/**
+	 * the allocations made by the hooks run against [feature] in the current, or last, OpMode, if its allocations were counted
+	 *
+	 * keyed by the name of the hook, only includes hooks that were run
 	 */
 	@JvmStatic
-	val activeFeatures
-		get() = _activeFeatures.toList()
+	fun hookAllocations(feature: Feature) = hookAllocations()[feature] ?: emptyMap()
+
+	/**
+	 * per active feature, a histogram for each [FeatureHook], by ordinal
+	 *
+	 * kept until the next OpMode starts, so that it can be inspected once an OpMode has finished
+	 */
+	private val latencies = ConcurrentHashMap<Feature, Array<LatencyHistogram>>()
+
+	/**
+	 * the latencies of the hooks run against each feature in the current, or last, OpMode, if its hooks were timed
+	 *
+	 * keyed by feature, then by the name of the hook, only includes hooks that were run
+	 */
+	@JvmStatic
+	fun hookLatencies(): Map<Feature, Map<String, LatencyHistogram>> = latencies.mapValues { (_, histograms) ->
+		FeatureHook.entries
+			.filter { histograms[it.ordinal].count != 0L }
+			.associate { it.methodName to histograms[it.ordinal] }
+	}
+
+	/**
+	 * the latencies of the hooks run against [feature] in the current, or last, OpMode, if its hooks were timed
+	 *
+	 * keyed by the name of the hook, only includes hooks that were run
+	 */
+	@JvmStatic
+	fun hookLatencies(feature: Feature) = hookLatencies()[feature] ?: emptyMap()
+
+	/**
+	 * [feature]'s histograms, by [FeatureHook] ordinal, or null if none of its hooks have been timed
+	 *
+	 * unlike [hookLatencies], doesn't copy, so that it can be read each loop
+	 */
+	internal fun hookLatencyHistograms(feature: Feature): Array<LatencyHistogram>? = latencies[feature]
+
+	private fun invokeInstrumented(hook: FeatureHook, feature: Feature, opMode: Wrapper) {
+		val histograms = if (timingHooks) latencies.getOrPut(feature) { Array(FeatureHook.entries.size) { LatencyHistogram() } } else null
+		val stats = if (countingAllocations) allocations.getOrPut(feature) { Array(FeatureHook.entries.size) { AllocationStats() } } else null
+		val startBytes = if (stats != null) AllocationCounter.currentThreadAllocatedBytes() else 0L
+		val start = System.nanoTime()
+		try {
+			hook.invoke(feature, opMode)
+		}
+		finally {
+			histograms?.get(hook.ordinal)?.record(System.nanoTime() - start)
+			stats?.get(hook.ordinal)?.record(AllocationCounter.allocatedSince(startBytes))
+		}
+	}
+
+	/**
+	 * runs [hook] against each active feature that overrides it
+	 *
+	 * when [instrumentingHooks] is set, a separate path is taken that records the latency and allocations of each hook,
+	 * so that there is no cost to not instrumenting them
+	 */
+	private fun dispatch(hook: FeatureHook, opMode: Wrapper) {
+		if (instrumentingHooks) dispatchWith(hook, opMode) { h, feature, o -> invokeInstrumented(h, feature, o) }
+		else dispatchWith(hook, opMode) { h, feature, o -> h.invoke(feature, o) }
+	}
+
+	/**
+	 * [Feature.ParallelSafe] features are run on [parallelHookPool] while the rest are run in order on this thread,
+	 * then waits for them all to finish, rethrowing the first exception thrown
+	 */
+	private inline fun dispatchWith(hook: FeatureHook, opMode: Wrapper, crossinline invoke: (FeatureHook, Feature, Wrapper) -> Unit) {
+		val parallel = parallelDispatchTables[hook.ordinal]
+		if (parallel.isEmpty()) {
+			for (feature in dispatchTables[hook.ordinal]) invoke(hook, feature, opMode)
+			return
+		}
+
+		val errors = arrayOfNulls<Throwable>(parallel.size)
+		val tasks = Array(parallel.size) { i ->
+			parallelHookPool.submit(Runnable {
+				try {
+					invoke(hook, parallel[i], opMode)
+				}
+				catch (e: Throwable) {
+					errors[i] = e
+				}
+			})
+		}
+		var error: Throwable? = null
+		try {
+			for (feature in dispatchTables[hook.ordinal]) invoke(hook, feature, opMode)
+		}
+		catch (e: Throwable) {
+			error = e
+		}
+		// the barrier, the phase isn't over until every parallel hook is
+		tasks.forEach { it.join() }
+		for (e in errors) {
+			if (e == null) continue
+			val first = error
+			if (first == null) error = e
+			else first.addSuppressed(e)
+		}
+		error?.let { throw it }
+	}
 
 	/**
 	 * if there is currently an [OpMode] active on the robot, should be true almost all of the time
@@ -66,6 +427,56 @@ object FeatureRegistrar : OpModeManagerNotifier.Notifications {
 	var opModeRunning: Boolean = false
 		private set
 
+	/**
+	 * if the active OpMode runs in phases that sample [loopNanoTime], only iterative OpModes do
+	 */
+	private var samplingPhases = false
+	private var phaseNanoTime = 0L
+
+	/**
+	 * where the time used by OpModes and their features is read from, can be replaced to run against a [VirtualTimeSource]
+	 *
+	 * only read by [nanoTime] and [loopNanoTime], instrumentation, like [hookLatencies] and the [LoopWatchdog], always uses [System.nanoTime]
+	 *
+	 * defaults to [TimeSource.SYSTEM]
+	 */
+	@JvmStatic
+	var timeSource: TimeSource = TimeSource.SYSTEM
+		set(value) {
+			field = value
+			samplePhase()
+		}
+
+	/**
+	 * the current time from [timeSource], in nanoseconds, read fresh
+	 */
+	@JvmStatic
+	fun nanoTime() = timeSource.nanoTime()
+
+	private var phases = 0L
+
+	private fun samplePhase() {
+		phaseNanoTime = nanoTime()
+		phases++
+	}
+
+	/**
+	 * changes each time [loopNanoTime] is sampled, and is -1 when it isn't,
+	 * lets things that should be read at most once a phase know when to read them again
+	 */
+	internal val phaseStamp: Long
+		get() = if (samplingPhases) phases else -1L
+
+	/**
+	 * [nanoTime], sampled once at the start of each phase of an iterative OpMode (init, init loop, start, loop and stop),
+	 * so that everything updated in a phase sees the same time, and the clock is only read once
+	 *
+	 * read fresh outside of an OpMode, and while a [LinearOpMode] runs, as it has no loop phase
+	 */
+	@JvmStatic
+	val loopNanoTime: Long
+		get() = if (samplingPhases) phaseNanoTime else nanoTime()
+
 	@JvmStatic
 	val opModeState: Wrapper.OpModeState
 		get() = activeOpModeWrapper.state
@@ -91,23 +502,23 @@ object FeatureRegistrar : OpModeManagerNotifier.Notifications {
 		get() { return activeOpModeWrapper.opMode }
 
 	/**
+	 * safe to call from any thread, the registration is processed by the OpMode thread at the start of the next hook
+	 *
 	 * this is mildly expensive to do while an OpMode is running, especially if many features are registered
 	 */
 	@JvmStatic
 	fun registerFeature(feature: Feature) {
-		if (_registeredFeatures.any { it.get() == feature }) return
-		val weakRef = WeakReference(feature)
-		_registeredFeatures.add(weakRef)
-		if (!opModeRunning) return
-		registrationQueue.add(weakRef to true)
+		enqueue(RegistrationRequest(WeakReference(feature), true))
 	}
 
 	/**
+	 * safe to call from any thread, the deregistration is processed by the OpMode thread at the start of the next hook
+	 *
 	 * this is mildly expensive to do while an OpMode is running, especially if many listeners are registered
 	 */
 	@JvmStatic
 	fun deregisterFeature(feature: Feature) {
-		registrationQueue.add(WeakReference(feature) to false)
+		enqueue(RegistrationRequest(WeakReference(feature), false))
 	}
 
 	/**
@@ -118,34 +529,55 @@ object FeatureRegistrar : OpModeManagerNotifier.Notifications {
 
 	private var logDependencyResolutionFailures = false
 	private fun resolveRegistrationQueue() {
-		if (registrationQueue.isEmpty()) return
-		registrationQueue.filter { !it.second }
-				.forEach { (feature, _) ->
-					RobotLog.vv(TAG, "Deactivating Feature: ${feature::class.java.simpleName}")
-					_activeFeatures.remove(feature.get())
-					_registeredFeatures.firstOrNull {
-						it.get() == feature.get()
-					}?.let {
-						_registeredFeatures.remove(it)
+		// a single volatile read when there is nothing to do
+		if (registrationQueue.get() == null) return
+		var request = drainRegistrationQueue()
+		val toResolve = LinkedHashSet<Feature>()
+		var changed = false
+		while (request != null) {
+			val feature = request.feature.get()
+			if (feature != null) {
+				if (request.register) {
+					if (_registeredFeatures.add(feature) && opModeRunning) toResolve.add(feature)
+				}
+				else {
+					toResolve.remove(feature)
+					if (_activeFeatures.remove(feature)) {
+						RobotLog.vv(TAG, "Deactivating Feature: ${feature::class.java.simpleName}")
+						changed = true
 					}
+					_registeredFeatures.remove(feature)
 				}
-		val toResolve = registrationQueue.filter { it.second }.mapNotNull { it.first.get() }.toSet() // makes a copy of the set
+			}
+			request = request.next
+		}
+		if (toResolve.isNotEmpty() && activateFeatures(toResolve)) changed = true
+		if (changed) onActiveFeaturesChanged()
+	}
+
+	/**
+	 * resolves the dependencies of [toResolve] against the currently active features, and activates those that succeed
+	 *
+	 * @param cachePlan if the resolution should be replayed from, or recorded to, the [ResolutionPlanCache]
+	 * @return if any features were activated
+	 */
+	private fun activateFeatures(toResolve: Set<Feature>, cachePlan: Boolean = false): Boolean {
 		val resolved = _activeFeatures.toMutableSet()
-		val failed = resolveDependencies(
-				activeOpModeWrapper,
-				toResolve.toMutableSet(),
-				resolved,
+		val failed = (
+				if (cachePlan) ResolutionPlanCache.resolve(activeOpModeWrapper, toResolve.toMutableSet(), resolved)
+				else resolveDependencies(activeOpModeWrapper, toResolve.toMutableSet(), resolved)
 		)
 			.mapNotNull { (k, v) ->
 				val message = v?.message ?: return@mapNotNull null
 				k to message
 			}
 		if (logDependencyResolutionFailures && failed.isNotEmpty()) RobotLog.ee(TAG, "These dependencies where unresolved for these reasons:\n%s", DependencyResolutionException(failed))
+		var changed = false
 		resolved.intersect(toResolve).forEach {
 			RobotLog.vv(TAG, "Activating Feature: ${it::class.java.simpleName}")
-			_activeFeatures.add(it)
+			if (_activeFeatures.add(it)) changed = true
 		}
-		registrationQueue.clear()
+		return changed
 	}
 
 	/**
@@ -167,6 +599,21 @@ object FeatureRegistrar : OpModeManagerNotifier.Notifications {
 		if (res.isNotEmpty()) throw DependencyResolutionException(res)
 	}
 
+	/**
+	 * decides if garbage collections are run after init, and after the OpMode stops
+	 *
+	 * defaults to [GcPolicy.ALWAYS]
+	 */
+	@JvmStatic
+	var gcPolicy: GcPolicy = GcPolicy.ALWAYS
+
+	/**
+	 * the most recent collections run under [gcPolicy], oldest first, with the heap in use before and after each
+	 */
+	@JvmStatic
+	val gcRecords: List<GcRecord>
+		get() = GarbageCollector.recentRecords
+
 	private val opModeManagerCell = LateInitCell<OpModeManagerImpl>()
 	private var opModeManager by opModeManagerCell
 
@@ -188,31 +635,50 @@ object FeatureRegistrar : OpModeManagerNotifier.Notifications {
 		}
 	}
 
-	private fun cleanFeatures() {
-		_registeredFeatures = _registeredFeatures.filter { it.get() != null }.toMutableSet()
-	}
-
 	override fun onOpModePreInit(opMode: OpMode) {
-		cleanFeatures()
-
 		val meta = RegisteredOpModes.getInstance().getOpModeMetadata(opModeManager.activeOpModeName) ?: throw RuntimeException("could not find metadata for OpMode")
 
 		// replace the OpMode with a wrapper that the user never sees, but provides our hooks
-		activeOpModeWrapper = when (opMode) {
-			is LinearOpMode -> {
-				LinearOpModeWrapper(opMode, meta)
-			}
-			else -> {
-				val wrapper = OpModeWrapper(opMode, meta)
-				activeOpModeMirroredCell.get().accept(wrapper)
-				wrapper
+		beginOpMode(
+			when (opMode) {
+				is LinearOpMode -> {
+					LinearOpModeWrapper(opMode, meta)
+				}
+				else -> {
+					val wrapper = OpModeWrapper(opMode, meta)
+					activeOpModeMirroredCell.get().accept(wrapper)
+					wrapper
+				}
 			}
-		}
-		logDependencyResolutionFailures = opMode.javaClass.inheritsAnnotation(LogDependencyResolutionExceptions::class.java)
-		opModeRunning = true
+		)
+	}
 
-		registrationQueue.addAll(_registeredFeatures.map{ it to true })
+	/**
+	 * makes [wrapper] the [activeOpModeWrapper], and activates the registered features against it
+	 */
+	private fun beginOpMode(wrapper: Wrapper) {
+		activeOpModeWrapper = wrapper
+		logDependencyResolutionFailures = wrapper.opMode.javaClass.inheritsAnnotation(LogDependencyResolutionExceptions::class.java)
+		timeHooksAnnotated = wrapper.opMode.javaClass.inheritsAnnotation(TimeHooks::class.java)
+		timingHooks = timeHooksAnnotated
+		countingAllocations = wrapper.opMode.javaClass.inheritsAnnotation(CountAllocations::class.java)
+		if (countingAllocations && !AllocationCounter.supported) {
+			RobotLog.ww(TAG, "allocations can't be counted on this runtime")
+			countingAllocations = false
+		}
+		instrumentingHooks = timingHooks || countingAllocations
+		latencies.clear()
+		allocations.clear()
+		_userLoopAllocations.reset()
+		userLoopStartBytes = 0L
+		loopStart = 0L
+
+		// processes any (de)registrations made while no OpMode was running
 		resolveRegistrationQueue()
+		samplePhase()
+		samplingPhases = wrapper is OpModeWrapper
+		opModeRunning = true
+		if (activateFeatures(_registeredFeatures.toCollection(LinkedHashSet()), cachePlan = true)) onActiveFeaturesChanged()
 
 		RobotLog.vv(TAG, "Initing opmode ${activeOpModeWrapper.name} with the following active features:")
 		RobotLog.vv(TAG, _activeFeatures.map { it.toString() }.toString())
@@ -220,42 +686,45 @@ object FeatureRegistrar : OpModeManagerNotifier.Notifications {
 
 	@JvmStatic
 	fun opModePreInit(opMode: Wrapper) {
+		samplePhase()
 		if (opMode is OpModeWrapper) opMode.initialiseThings()
 		when (opMode) {
 			is OpModeWrapper -> opMode._state = Wrapper.OpModeState.INIT
 			is LinearOpModeWrapper -> opMode._state = Wrapper.OpModeState.INIT
 		}
 		resolveRegistrationQueue()
-		_activeFeatures.forEach { it.preUserInitHook(opMode) }
+		dispatch(FeatureHook.PRE_USER_INIT, opMode)
 	}
 
 	@JvmStatic
 	fun opModePostInit(opMode: Wrapper) {
 		resolveRegistrationQueue()
-		_activeFeatures.reversed().forEach { it.postUserInitHook(opMode) }
-		System.gc()
+		dispatch(FeatureHook.POST_USER_INIT, opMode)
+		GarbageCollector.collect(gcPolicy, GcPolicy.Point.POST_INIT)
 	}
 
 	@JvmStatic
 	fun opModePreInitLoop(opMode: Wrapper) {
+		samplePhase()
 		resolveRegistrationQueue()
-		_activeFeatures.forEach { it.preUserInitLoopHook(opMode) }
+		dispatch(FeatureHook.PRE_USER_INIT_LOOP, opMode)
 	}
 
 	@JvmStatic
 	fun opModePostInitLoop(opMode: Wrapper) {
 		resolveRegistrationQueue()
-		_activeFeatures.reversed().forEach { it.postUserInitLoopHook(opMode) }
+		dispatch(FeatureHook.POST_USER_INIT_LOOP, opMode)
 	}
 
 	@JvmStatic
 	fun opModePreStart(opMode: Wrapper) {
+		samplePhase()
 		when (opMode) {
 			is OpModeWrapper -> opMode._state = Wrapper.OpModeState.ACTIVE
 			is LinearOpModeWrapper -> opMode._state = Wrapper.OpModeState.ACTIVE
 		}
 		resolveRegistrationQueue()
-		_activeFeatures.forEach { it.preUserStartHook(opMode) }
+		dispatch(FeatureHook.PRE_USER_START, opMode)
 	}
 
 	override fun onOpModePreStart(opMode: OpMode) {
@@ -265,31 +734,43 @@ object FeatureRegistrar : OpModeManagerNotifier.Notifications {
 	@JvmStatic
 	fun opModePostStart(opMode: Wrapper) {
 		resolveRegistrationQueue()
-		_activeFeatures.reversed().forEach { it.postUserStartHook(opMode) }
+		dispatch(FeatureHook.POST_USER_START, opMode)
 	}
 
 	@JvmStatic
 	fun opModePreLoop(opMode: Wrapper) {
+		samplePhase()
+		if (watchingLoops) loopStart = System.nanoTime()
 		resolveRegistrationQueue()
-		_activeFeatures.forEach { it.preUserLoopHook(opMode) }
+		dispatch(FeatureHook.PRE_USER_LOOP, opMode)
+		if (watchingLoops) userLoopStart = System.nanoTime()
+		if (countingAllocations) userLoopStartBytes = AllocationCounter.currentThreadAllocatedBytes()
 	}
 
 	@JvmStatic
 	fun opModePostLoop(opMode: Wrapper) {
+		if (countingAllocations && userLoopStartBytes != 0L) _userLoopAllocations.record(AllocationCounter.allocatedSince(userLoopStartBytes))
+		if (watchingLoops) userLoopEnd = System.nanoTime()
 		resolveRegistrationQueue()
-		_activeFeatures.reversed().forEach { it.postUserLoopHook(opMode) }
+		dispatch(FeatureHook.POST_USER_LOOP, opMode)
+		// the watchdog may have been activated part way through the loop
+		if (watchingLoops && loopStart != 0L) {
+			LoopWatchdog.onLoop(loopStart, userLoopStart, userLoopEnd, System.nanoTime())
+			loopStart = 0L
+		}
 	}
 
 	@JvmStatic
 	fun opModePreStop(opMode: Wrapper) {
+		samplePhase()
 		resolveRegistrationQueue()
-		_activeFeatures.forEach { it.preUserStopHook(opMode) }
+		dispatch(FeatureHook.PRE_USER_STOP, opMode)
 	}
 
 	@JvmStatic
 	fun opModePostStop(opMode: Wrapper) {
 		resolveRegistrationQueue()
-		_activeFeatures.reversed().forEach { it.postUserStopHook(opMode) }
+		dispatch(FeatureHook.POST_USER_STOP, opMode)
 		when (opMode) {
 			is OpModeWrapper -> opMode._state = Wrapper.OpModeState.STOPPED
 			is LinearOpModeWrapper -> opMode._state = Wrapper.OpModeState.STOPPED
@@ -300,14 +781,31 @@ object FeatureRegistrar : OpModeManagerNotifier.Notifications {
 		resolveRegistrationQueue()
 		// empty active listeners and active flags
 		opModeRunning = false
+		samplingPhases = false
 		RobotLog.vv(TAG, "cleaning up ${activeOpModeWrapper.name}")
 		// we need to run feature cleanup
-		_activeFeatures.reversed().forEach { it.cleanup(activeOpModeWrapper) }
+		dispatch(FeatureHook.CLEANUP, activeOpModeWrapper)
+		// then stop any work they left running
+		cancelAllAsync()
 		// then clear them
 		_activeFeatures.clear()
+		onActiveFeaturesChanged()
 		activeOpModeMirroredCell.safeGet()?.invalidate() // we need to kill the previous OpMode, so they can't reuse it, todo test
-		System.gc()
+		GarbageCollector.collect(gcPolicy, GcPolicy.Point.POST_STOP)
 	}
 
 	annotation class LogDependencyResolutionExceptions
+
+	/**
+	 * times each hook run against each feature while the annotated OpMode runs, see [hookLatencies]
+	 */
+	annotation class TimeHooks
+
+	/**
+	 * counts the bytes allocated by each hook run against each feature, and by the user's loop, while the annotated OpMode runs,
+	 * see [hookAllocations] and [userLoopAllocations]
+	 *
+	 * has no effect if [allocationCountingSupported] is false
+	 */
+	annotation class CountAllocations
 }
\ No newline at end of file
@@ -1,12 +1,17 @@
 package dev.frozenmilk.dairy.core
 
+import android.content.Context
 import com.qualcomm.robotcore.util.RobotLog
+import dev.frozenmilk.dairy.core.util.index.StaticInstanceIndex
 import dev.frozenmilk.sinister.SinisterFilter
+import dev.frozenmilk.sinister.apphooks.OnCreate
 import dev.frozenmilk.sinister.staticInstancesOf
-import dev.frozenmilk.sinister.targeting.WideSearch
 
-private object FeatureSinisterFilter : SinisterFilter {
-	override val targets = WideSearch()
+private object FeatureSinisterFilter : SinisterFilter, OnCreate {
+	/**
+	 * classes covered by the [StaticInstanceIndex] aren't scanned, the ones it found are checked in [onCreate] instead
+	 */
+	override val targets = StaticInstanceIndex.unindexedSearch()
 
 	override fun filter(clazz: Class<*>) {
 		clazz.staticInstancesOf(Feature::class.java)
@@ -15,4 +20,8 @@ private object FeatureSinisterFilter : SinisterFilter {
 					FeatureRegistrar.registerFeature(it)
 				}
 	}
+
+	override fun onCreate(context: Context) {
+		StaticInstanceIndex.classes?.forEach { filter(it) }
+	}
 }
\ No newline at end of file
@@ -20,6 +20,15 @@ fun interface Dependency <T> {
 	@Throws(DependencyResolutionException::class)
 	fun resolve(opMode: Wrapper, resolvedFeatures: List<Feature>, yielding: Boolean) : T
 
+	/**
+	 * if the outcome of [resolve] only depends on its arguments,
+	 * allowing [dev.frozenmilk.dairy.core.FeatureRegistrar] to reuse the order in which features were resolved in later runs of the same OpMode
+	 *
+	 * dependencies that also depend on something else (e.g. hardware, time, or other mutable state) should return false
+	 */
+	val cacheable: Boolean
+		get() = true
+
 	/**
 	 * calls all [onResolve] consumers
 	 */
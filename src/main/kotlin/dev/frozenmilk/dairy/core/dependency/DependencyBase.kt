@@ -7,4 +7,6 @@ open class DependencyBase <T> (val dependency: Dependency<T>) : Dependency<T> {
 	override fun resolve(opMode: Wrapper, resolvedFeatures: List<Feature>, yielding: Boolean) = dependency.resolve(opMode, resolvedFeatures, yielding)
 	override fun accept(p0: T) = dependency.accept(p0)
 	override fun acceptErr(p0: Throwable) = dependency.acceptErr(p0)
+	override val cacheable
+		get() = dependency.cacheable
 }
\ No newline at end of file
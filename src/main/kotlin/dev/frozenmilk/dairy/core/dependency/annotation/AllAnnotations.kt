@@ -1,18 +1,15 @@
 package dev.frozenmilk.dairy.core.dependency.annotation
 
 import dev.frozenmilk.dairy.core.dependency.resolution.DependencyResolutionException
+import dev.frozenmilk.dairy.core.wrapper.instancesOf
 import java.util.function.Function
 
 class AllAnnotations(annotations: Set<Class<out Annotation>>) : AnnotationDependency<List<Annotation>>(Function { collection ->
-		val classCollection = collection.map { it to it.javaClass }
-		val intersect = classCollection
-			.filter { (_, clazz) -> annotations.any { it.isAssignableFrom(clazz) } }
-			.map { it.first }
+		val intersect = collection.instancesOf(annotations)
 		if (intersect.size == annotations.size) return@Function intersect
-		val unFound = classCollection.map { it.second }
 		throw DependencyResolutionException(
 				annotations
-					.filter { !unFound.contains(it) }
+					.filter { clazz -> intersect.none { clazz.isInstance(it) } }
 					.map { "No annotation of type ${it.simpleName}" }
 		)
 }) {
@@ -6,5 +6,5 @@ import dev.frozenmilk.dairy.core.wrapper.Wrapper
 import java.util.function.Function
 
 open class AnnotationDependency <T> (private val f: Function<List<Annotation>, T>) : Dependency<T> {
-	override fun resolve(opMode: Wrapper, resolvedFeatures: List<Feature>, yielding: Boolean) = f.apply(opMode.inheritedAnnotations)
+	override fun resolve(opMode: Wrapper, resolvedFeatures: List<Feature>, yielding: Boolean) = f.apply(opMode.annotationIndex)
 }
\ No newline at end of file
@@ -1,13 +1,10 @@
 package dev.frozenmilk.dairy.core.dependency.annotation
 
 import dev.frozenmilk.dairy.core.dependency.resolution.DependencyResolutionException
+import dev.frozenmilk.dairy.core.wrapper.instancesOf
 
 class AnyAnnotations(annotations: Set<Class<out Annotation>>) : AnnotationDependency<List<Annotation>>({ collection ->
-	val classCollection = collection.map { it to it.javaClass }
-	val intersect = classCollection
-		.filter { (_, clazz) -> annotations.any { it.isAssignableFrom(clazz) } }
-		.map { it.first }
-	intersect.ifEmpty {
+	collection.instancesOf(annotations).ifEmpty {
 		throw DependencyResolutionException(
 				annotations.map { "No annotation of type ${it.simpleName}" }
 		)
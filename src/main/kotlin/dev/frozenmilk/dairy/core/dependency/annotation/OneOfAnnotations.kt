@@ -1,23 +1,19 @@
 package dev.frozenmilk.dairy.core.dependency.annotation
 
 import dev.frozenmilk.dairy.core.dependency.resolution.DependencyResolutionException
+import dev.frozenmilk.dairy.core.wrapper.instancesOf
 import java.util.function.Function
 
 class OneOfAnnotations(annotations: Set<Class<out Annotation>>) : AnnotationDependency<Annotation>(Function { collection ->
-	val classCollection = collection.associateWith { it.javaClass }
-	val intersect = classCollection.filterValues { clazz -> annotations.any { it.isAssignableFrom(clazz) } }
-	if (intersect.size == 1) return@Function intersect.keys.first()
+	val intersect = collection.instancesOf(annotations)
+	if (intersect.size == 1) return@Function intersect.first()
 	if (intersect.isNotEmpty()) {
 		throw DependencyResolutionException(
-				intersect.filterValues { annotations.contains(it) }
-						.map {
-							(k, _) -> k to "Too many annotations"
-						}
+				intersect.map { it to "Too many annotations" }
 		)
 	}
 	throw DependencyResolutionException(
-			annotations.filter { !intersect.containsValue(it) }
-					.map { "No annotation of type ${it.simpleName}" }
+			annotations.map { "No annotation of type ${it.simpleName}" }
 	)
 }) {
 	@SafeVarargs
@@ -2,10 +2,13 @@ package dev.frozenmilk.dairy.core.dependency.feature
 
 import dev.frozenmilk.dairy.core.Feature
 import dev.frozenmilk.dairy.core.dependency.resolution.DependencyResolutionException
+import dev.frozenmilk.dairy.core.dependency.resolution.ResolvedFeatures
 import java.util.function.Function
 
 class AllFeatureClasses(features: Set<Class<out Feature>>) : FeatureDependency<List<Feature>>(Function { collection ->
-	val intersect = collection.filter { features.contains(it.javaClass) }
+	val intersect =
+		if (collection is ResolvedFeatures) collection.instancesOf(features, true)
+		else collection.filter { features.contains(it.javaClass) }
 	if (intersect.size == features.size) return@Function intersect
 	else {
 		val intersectClasses = intersect.map { it.javaClass }
@@ -14,7 +17,7 @@ class AllFeatureClasses(features: Set<Class<out Feature>>) : FeatureDependency<L
 						.map { "No feature of type ${it.simpleName}" }
 		)
 	}
-}) {
+}, null, features) {
 	@SafeVarargs
 	constructor(vararg features: Class<out Feature>) : this(features.toSet())
 	constructor(features: Collection<Class<out Feature>>) : this(features.toSet())
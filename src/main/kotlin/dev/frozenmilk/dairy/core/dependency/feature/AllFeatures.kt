@@ -11,7 +11,7 @@ class AllFeatures(features: Set<Feature>) : FeatureDependency<Set<Feature>>(Func
 		features.filter { !intersect.contains(it) }
 			.map { "$it not attached" }
 	)
-}) {
+}, features, null) {
 	constructor(vararg features: Feature) : this(features.toSet())
 	constructor(features: Collection<Feature>) : this(features.toSet())
 }
\ No newline at end of file
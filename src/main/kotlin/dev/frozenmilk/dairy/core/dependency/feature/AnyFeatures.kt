@@ -11,7 +11,7 @@ class AnyFeatures(features: Set<Feature>) : FeatureDependency<Set<Feature>>({ co
 						.map { "$it not attached" }
 		)
 	}
-}) {
+}, features, null) {
 	constructor(vararg features: Feature) : this(features.toSet())
 	constructor(features: Collection<Feature>) : this(features.toSet())
 }
\ No newline at end of file
@@ -5,6 +5,17 @@ import dev.frozenmilk.dairy.core.dependency.Dependency
 import dev.frozenmilk.dairy.core.wrapper.Wrapper
 import java.util.function.Function
 
-open class FeatureDependency<T> (val f: Function<Collection<Feature>, T>) : Dependency<T> {
+open class FeatureDependency<T> internal constructor(
+	val f: Function<Collection<Feature>, T>,
+	/**
+	 * the only features that [f] depends on, or null if unknown
+	 */
+	internal val declaredFeatures: Set<Feature>?,
+	/**
+	 * the only classes of features that [f] depends on, matched against each class a feature extends or implements, or null if unknown
+	 */
+	internal val declaredFeatureClasses: Set<Class<out Feature>>?,
+) : Dependency<T> {
+	constructor(f: Function<Collection<Feature>, T>) : this(f, null, null)
 	override fun resolve(opMode: Wrapper, resolvedFeatures: List<Feature>, yielding: Boolean) = f.apply(resolvedFeatures)
 }
\ No newline at end of file
@@ -2,10 +2,13 @@ package dev.frozenmilk.dairy.core.dependency.feature
 
 import dev.frozenmilk.dairy.core.Feature
 import dev.frozenmilk.dairy.core.dependency.resolution.DependencyResolutionException
+import dev.frozenmilk.dairy.core.dependency.resolution.ResolvedFeatures
 import java.util.function.Function
 
 class OneOfFeatureClasses(features: Set<Class<out Feature>>) : FeatureDependency<Feature>(Function { collection ->
-	val intersect = collection.filter { features.contains(it.javaClass) }
+	val intersect =
+		if (collection is ResolvedFeatures) collection.instancesOf(features, true)
+		else collection.filter { features.contains(it.javaClass) }
 	if (intersect.size == 1) return@Function intersect.first()
 	if (intersect.isNotEmpty()) {
 		val intersectClasses = intersect.map { it.javaClass }
@@ -17,7 +20,7 @@ class OneOfFeatureClasses(features: Set<Class<out Feature>>) : FeatureDependency
 	throw DependencyResolutionException(
 			features.map { "No feature of type ${it.simpleName}" }
 	)
-}) {
+}, null, features) {
 	@SafeVarargs
 	constructor(vararg features: Class<out Feature>) : this(features.toSet())
 	constructor(features: Collection<Class<out Feature>>) : this(features.toSet())
@@ -17,7 +17,7 @@ class OneOfFeatures(features: Set<Feature>) : FeatureDependency<Feature>(Functio
 			features.filter { !intersect.contains(it) }
 					.map { "$it not attached" }
 	)
-}) {
+}, features, null) {
 	constructor(vararg features: Feature) : this(features.toSet())
 	constructor(features: Collection<Feature>) : this(features.toSet())
 }
\ No newline at end of file
@@ -6,4 +6,4 @@ import dev.frozenmilk.dairy.core.dependency.resolution.DependencyResolutionExcep
 class SingleFeature<T: Feature>(feature: T) : FeatureDependency<T> ({
 	if (it.contains(feature)) feature
 	else throw DependencyResolutionException(feature to "feature not attached")
-})
\ No newline at end of file
+}, setOf(feature), null)
\ No newline at end of file
@@ -2,9 +2,10 @@ package dev.frozenmilk.dairy.core.dependency.feature
 
 import dev.frozenmilk.dairy.core.Feature
 import dev.frozenmilk.dairy.core.dependency.resolution.DependencyResolutionException
+import dev.frozenmilk.dairy.core.dependency.resolution.ResolvedFeatures
 
 class SingleFeatureClass<T: Feature>(feature: Class<T>) : FeatureDependency<List<T>>({
-	it.filterIsInstance(feature).ifEmpty {
+	(if (it is ResolvedFeatures) it.instancesOf(feature) else it.filterIsInstance(feature)).ifEmpty {
 		throw DependencyResolutionException("no instances of ${feature.simpleName} attached")
 	}
-})
\ No newline at end of file
+}, null, setOf(feature))
\ No newline at end of file
@@ -16,4 +16,7 @@ open class LogicalOperator<L, R, OUT>(
 			{ l.resolve(opMode, resolvedFeatures, yielding) },
 			{ r.resolve(opMode, resolvedFeatures, yielding) }
 		)
+
+	override val cacheable
+		get() = l.cacheable && r.cacheable
 }
\ No newline at end of file
@@ -0,0 +1,82 @@
+package dev.frozenmilk.dairy.core.dependency.resolution
+
+import dev.frozenmilk.dairy.core.Feature
+import dev.frozenmilk.dairy.core.dependency.Dependency
+import dev.frozenmilk.dairy.core.dependency.DependencyBase
+import dev.frozenmilk.dairy.core.dependency.annotation.AnnotationDependency
+import dev.frozenmilk.dairy.core.dependency.annotation.SingleAnnotations
+import dev.frozenmilk.dairy.core.dependency.feature.FeatureDependency
+import dev.frozenmilk.dairy.core.dependency.lazy.Yielding
+import dev.frozenmilk.dairy.core.dependency.meta.LogicalOperator
+import dev.frozenmilk.dairy.core.wrapper.Wrapper
+import java.util.concurrent.ConcurrentHashMap
+
+/**
+ * what the outcome of resolving a [Dependency] may change with, other than the [Wrapper] it is resolved against
+ *
+ * used by [resolveDependencies] to avoid re-examining dependencies whose inputs have not changed
+ *
+ * @param features resolved features it depends on
+ * @param featureClasses classes of resolved features it depends on
+ * @param yielding if it depends on the yielding flag
+ * @param opaque if it may depend on anything, in which case it must be re-examined whenever anything changes
+ */
+internal class DependencyInputs(
+	val features: Set<Feature>,
+	val featureClasses: Set<Class<*>>,
+	val yielding: Boolean,
+	val opaque: Boolean,
+) {
+	operator fun plus(other: DependencyInputs): DependencyInputs =
+		if (opaque || other.opaque) OPAQUE
+		else DependencyInputs(
+			features + other.features,
+			featureClasses + other.featureClasses,
+			yielding || other.yielding,
+			false,
+		)
+
+	companion object {
+		val NONE = DependencyInputs(emptySet(), emptySet(), yielding = false, opaque = false)
+		val YIELDING = DependencyInputs(emptySet(), emptySet(), yielding = true, opaque = false)
+		val OPAQUE = DependencyInputs(emptySet(), emptySet(), yielding = true, opaque = true)
+	}
+}
+
+/**
+ * the class that declares the implementation of [Dependency.resolve] that each class uses
+ */
+private val resolveDeclarations = ConcurrentHashMap<Class<*>, Class<*>>()
+
+/**
+ * if [cls] is where this gets its implementation of [Dependency.resolve] from,
+ * if it isn't, a subclass has changed the behaviour, and we can't know what it depends on
+ */
+private fun Dependency<*>.resolvesWith(cls: Class<*>) = resolveDeclarations.getOrPut(javaClass) {
+	javaClass.getMethod(
+		"resolve",
+		Wrapper::class.java,
+		List::class.java,
+		Boolean::class.javaPrimitiveType,
+	).declaringClass
+} == cls
+
+/**
+ * works out the [DependencyInputs] of the dependencies provided by this library,
+ * anything else is [DependencyInputs.OPAQUE]
+ */
+internal val Dependency<*>.inputs: DependencyInputs
+	get() = when {
+		this === Yielding -> DependencyInputs.YIELDING
+		this is LogicalOperator<*, *, *> && resolvesWith(LogicalOperator::class.java) -> l.inputs + r.inputs
+		this is DependencyBase<*> && resolvesWith(DependencyBase::class.java) -> dependency.inputs
+		this is FeatureDependency<*> && resolvesWith(FeatureDependency::class.java) -> {
+			val features = declaredFeatures
+			val featureClasses = declaredFeatureClasses
+			if (features == null && featureClasses == null) DependencyInputs.OPAQUE
+			else DependencyInputs(features.orEmpty(), featureClasses.orEmpty(), yielding = false, opaque = false)
+		}
+		this is AnnotationDependency<*> && resolvesWith(AnnotationDependency::class.java) -> DependencyInputs.NONE
+		this is SingleAnnotations<*> -> DependencyInputs.NONE
+		else -> DependencyInputs.OPAQUE
+	}
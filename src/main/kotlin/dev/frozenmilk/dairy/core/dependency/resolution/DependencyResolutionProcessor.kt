@@ -4,37 +4,111 @@ import dev.frozenmilk.dairy.core.Feature
 import dev.frozenmilk.dairy.core.dependency.Dependency
 import dev.frozenmilk.dairy.core.dependency.resolveAndAccept
 import dev.frozenmilk.dairy.core.wrapper.Wrapper
+import java.util.concurrent.ConcurrentHashMap
+
+/**
+ * a feature waiting to be resolved, and the information needed to tell if it needs to be re-examined
+ */
+private class ResolutionNode(val feature: Feature) {
+	val inputs = feature.dependency.inputs
+	var resolved = false
+
+	/**
+	 * set when something in [inputs] has changed since this was last examined
+	 */
+	var dirty = true
+	private var examinedAtResolution = -1
+	private var examinedWhileYielding = false
+
+	fun needsExamining(resolutions: Int, yielding: Boolean) =
+		if (inputs.opaque) examinedAtResolution != resolutions || examinedWhileYielding != yielding
+		else dirty || (inputs.yielding && examinedWhileYielding != yielding)
+
+	fun examined(resolutions: Int, yielding: Boolean) {
+		dirty = false
+		examinedAtResolution = resolutions
+		examinedWhileYielding = yielding
+	}
+}
+
+private val supertypesCache = ConcurrentHashMap<Class<*>, Set<Class<*>>>()
+
+/**
+ * this class, and every class and interface it extends or implements
+ */
+internal val Class<*>.supertypes: Set<Class<*>>
+	get() = supertypesCache.getOrPut(this) {
+		val supertypes = LinkedHashSet<Class<*>>()
+		supertypes.add(this)
+		superclass?.let { supertypes.addAll(it.supertypes) }
+		interfaces.forEach { supertypes.addAll(it.supertypes) }
+		supertypes
+	}
+
+/**
+ * resolves [toResolve] against [resolved], moving features into [resolved] as they are resolved
+ *
+ * features are examined in passes, in the order of [toResolve], until a pass resolves nothing, then a pass is made with yielding set,
+ * should that resolve anything, the process repeats
+ *
+ * a dependency graph is built from the [DependencyInputs] of each feature, so that a feature is only re-examined once something it depends on has changed,
+ * features with dependencies that can't be understood are re-examined each time anything changes
+ *
+ * dependencies are passed a [ResolvedFeatures], which can be used to look up resolved features by class
+ *
+ * @param onResolved called with each feature as it is resolved, and if it was resolved while yielding
+ * @return the last exception thrown by each feature that failed to resolve
+ */
+internal fun resolveDependencies(wrapper: Wrapper, toResolve: MutableSet<Feature>, resolved: MutableSet<Feature>, onResolved: ((Feature, Boolean) -> Unit)? = null): Map<Feature, Throwable?> {
+	val nodes = toResolve.map { ResolutionNode(it) }
+
+	// edges from features, and classes of features, to the nodes that depend on them
+	val featureDependents = HashMap<Feature, MutableList<ResolutionNode>>()
+	val classDependents = HashMap<Class<*>, MutableList<ResolutionNode>>()
+	nodes.forEach { node ->
+		node.inputs.features.forEach { featureDependents.getOrPut(it) { mutableListOf() }.add(node) }
+		node.inputs.featureClasses.forEach { classDependents.getOrPut(it) { mutableListOf() }.add(node) }
+	}
+
+	var resolutions = 0
+	val index = ResolvedFeatureIndex(resolved)
+	var resolvedFeatures = index.view()
 
-internal fun resolveDependencies(wrapper: Wrapper, toResolve: MutableSet<Feature>, resolved: MutableSet<Feature>): Map<Feature, Throwable?> {
 	var notLocked = true
 	var yielding = false
 
 	val exceptionMap = mutableMapOf<Feature, Throwable?>()
 	while (notLocked || yielding) {
-		val unresolvedSize = toResolve.size
-		with(toResolve.iterator()){
-			forEach { feature ->
-				exceptionMap.remove(feature)
-
-				try {
-					feature.dependency.resolveAndAccept(wrapper, resolved.toList(), yielding)
-				}
-				catch (e: Dependency.CallbackErr) {
-					throw e.cause
-				}
-				catch (e: Throwable) {
-					exceptionMap[feature] = e
-				}
-
-				if (exceptionMap[feature] == null) {
-					resolved.add(feature)
-					remove()
-					exceptionMap.remove(feature)
-				}
+		val previousResolutions = resolutions
+		nodes.forEach { node ->
+			if (node.resolved || !node.needsExamining(resolutions, yielding)) return@forEach
+			node.examined(resolutions, yielding)
+			val feature = node.feature
+			exceptionMap.remove(feature)
+
+			try {
+				feature.dependency.resolveAndAccept(wrapper, resolvedFeatures, yielding)
+			}
+			catch (e: Dependency.CallbackErr) {
+				throw e.cause
 			}
+			catch (e: Throwable) {
+				exceptionMap[feature] = e
+				return@forEach
+			}
+
+			resolved.add(feature)
+			toResolve.remove(feature)
+			node.resolved = true
+			resolutions++
+			index.add(feature)
+			resolvedFeatures = index.view()
+			onResolved?.invoke(feature, yielding)
+			featureDependents[feature]?.forEach { it.dirty = true }
+			feature.javaClass.supertypes.forEach { cls -> classDependents[cls]?.forEach { it.dirty = true } }
 		}
 
-		notLocked = toResolve.size != unresolvedSize
+		notLocked = resolutions != previousResolutions
 		yielding = (!notLocked && !yielding)
 	}
 
@@ -44,4 +118,4 @@ internal fun resolveDependencies(wrapper: Wrapper, toResolve: MutableSet<Feature
 			}
 
 	return exceptionMap
-}
\ No newline at end of file
+}
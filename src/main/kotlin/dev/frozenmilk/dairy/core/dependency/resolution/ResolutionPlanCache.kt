@@ -0,0 +1,141 @@
+package dev.frozenmilk.dairy.core.dependency.resolution
+
+import dev.frozenmilk.dairy.core.Feature
+import dev.frozenmilk.dairy.core.dependency.Dependency
+import dev.frozenmilk.dairy.core.dependency.resolveAndAccept
+import dev.frozenmilk.dairy.core.wrapper.Wrapper
+import java.lang.ref.WeakReference
+import java.util.IdentityHashMap
+
+/**
+ * remembers the order in which [resolveDependencies] resolved the features of an OpMode,
+ * so that the next run of the same OpMode, with the same features and dependencies, can replay it,
+ * rather than searching for it again
+ *
+ * a replay still resolves each dependency, in the recorded order and with the recorded yielding flag, and calls its accept callbacks,
+ * if any step doesn't go as recorded, the rest of the features are resolved as normal
+ *
+ * only features and dependencies that are still around are matched, they are only weakly referenced
+ */
+internal object ResolutionPlanCache {
+	internal const val CAPACITY = 8
+
+	private val plans = object : LinkedHashMap<Key, Plan>(CAPACITY, 0.75f, true) {
+		override fun removeEldestEntry(eldest: MutableMap.MutableEntry<Key, Plan>?) = size > CAPACITY
+	}
+
+	/**
+	 * what a plan was recorded for, features and dependencies are compared by identity
+	 */
+	private class Key(wrapper: Wrapper, features: List<Feature>) {
+		private val opMode = wrapper.opMode.javaClass
+		private val inheritedAnnotations = wrapper.inheritedAnnotations
+		private val features = features.map { WeakReference(it) }
+		private val dependencies = features.map { WeakReference(it.dependency) }
+		private val hash = features.fold(31 * opMode.hashCode() + inheritedAnnotations.hashCode()) { hash, feature ->
+			31 * (31 * hash + System.identityHashCode(feature)) + System.identityHashCode(feature.dependency)
+		}
+
+		override fun hashCode() = hash
+		override fun equals(other: Any?): Boolean {
+			if (this === other) return true
+			if (other !is Key) return false
+			return hash == other.hash
+					&& opMode == other.opMode
+					&& inheritedAnnotations == other.inheritedAnnotations
+					&& sameReferents(features, other.features)
+					&& sameReferents(dependencies, other.dependencies)
+		}
+
+		private fun sameReferents(references: List<WeakReference<*>>, others: List<WeakReference<*>>): Boolean {
+			if (references.size != others.size) return false
+			references.indices.forEach {
+				val referent = references[it].get() ?: return false
+				if (referent !== others[it].get()) return false
+			}
+			return true
+		}
+	}
+
+	/**
+	 * indices into the features of the [Key]
+	 *
+	 * @param resolved the features that were resolved, in the order they were resolved
+	 * @param yielding if the feature at the same position in [resolved] was resolved while yielding
+	 * @param failed the features that failed to resolve
+	 */
+	private class Plan(val resolved: IntArray, val yielding: BooleanArray, val failed: IntArray)
+
+	/**
+	 * the same as [resolveDependencies], but replays the plan recorded for the last matching resolution, if there is one
+	 *
+	 * plans are only used when nothing has been [resolved] yet, and every dependency is [Dependency.cacheable]
+	 */
+	fun resolve(wrapper: Wrapper, toResolve: MutableSet<Feature>, resolved: MutableSet<Feature>): Map<Feature, Throwable?> {
+		val features = toResolve.toList()
+		if (resolved.isNotEmpty() || features.any { !it.dependency.cacheable }) return resolveDependencies(wrapper, toResolve, resolved)
+
+		val key = Key(wrapper, features)
+		val plan = plans[key]
+		if (plan != null) {
+			replay(wrapper, features, plan, toResolve, resolved)?.let { return it }
+			plans.remove(key)
+			return resolveDependencies(wrapper, toResolve, resolved)
+		}
+
+		val positions = IdentityHashMap<Feature, Int>(features.size)
+		features.forEachIndexed { position, feature -> positions[feature] = position }
+		val resolvedPositions = ArrayList<Int>(features.size)
+		val yielding = ArrayList<Boolean>(features.size)
+		val exceptionMap = resolveDependencies(wrapper, toResolve, resolved) { feature, wasYielding ->
+			resolvedPositions.add(positions[feature]!!)
+			yielding.add(wasYielding)
+		}
+		plans[key] = Plan(
+			resolvedPositions.toIntArray(),
+			yielding.toBooleanArray(),
+			toResolve.map { positions[it]!! }.toIntArray(),
+		)
+		return exceptionMap
+	}
+
+	/**
+	 * @return the exceptions thrown by the failed features, or null if the plan didn't go as recorded,
+	 * in which case any features that weren't resolved are left in [toResolve], and their failure callbacks haven't been run
+	 */
+	private fun replay(wrapper: Wrapper, features: List<Feature>, plan: Plan, toResolve: MutableSet<Feature>, resolved: MutableSet<Feature>): Map<Feature, Throwable?>? {
+		val index = ResolvedFeatureIndex(resolved)
+		plan.resolved.forEachIndexed { step, position ->
+			val feature = features[position]
+			try {
+				feature.dependency.resolveAndAccept(wrapper, index.view(), plan.yielding[step])
+			}
+			catch (e: Dependency.CallbackErr) {
+				throw e.cause
+			}
+			catch (e: Throwable) {
+				return null
+			}
+			resolved.add(feature)
+			toResolve.remove(feature)
+			index.add(feature)
+		}
+
+		val resolvedFeatures = index.view()
+		val exceptionMap = mutableMapOf<Feature, Throwable?>()
+		plan.failed.forEach { position ->
+			val feature = features[position]
+			try {
+				feature.dependency.resolve(wrapper, resolvedFeatures, true)
+			}
+			catch (e: Throwable) {
+				exceptionMap[feature] = e
+				return@forEach
+			}
+			return null
+		}
+
+		toResolve.forEach { it.dependency.acceptErr(exceptionMap[it]!!) }
+		return exceptionMap
+	}
+}
@@ -0,0 +1,116 @@
+package dev.frozenmilk.dairy.core.dependency.resolution
+
+import dev.frozenmilk.dairy.core.Feature
+
+/**
+ * the features resolved so far by [resolveDependencies], in the order they were resolved
+ *
+ * features can only be added, so [view]s can share the same storage
+ *
+ * keeps an index from classes to the positions of their instances,
+ * each class' entry is built the first time it is looked up, and then kept up to date as features are [add]ed
+ */
+internal class ResolvedFeatureIndex(features: Collection<Feature>) {
+	private val features = ArrayList<Feature>(features.size)
+	private val positions = HashMap<Feature, Int>()
+	private val classPositions = HashMap<Class<*>, Positions>()
+
+	/**
+	 * ascending positions in [features]
+	 */
+	private class Positions {
+		var array = IntArray(4)
+		var size = 0
+		fun add(position: Int) {
+			if (size == array.size) array = array.copyOf(size * 2)
+			array[size++] = position
+		}
+
+		/**
+		 * the number of positions that are less than [limit]
+		 */
+		fun countBelow(limit: Int): Int {
+			var low = 0
+			var high = size
+			while (low < high) {
+				val mid = (low + high) ushr 1
+				if (array[mid] < limit) low = mid + 1
+				else high = mid
+			}
+			return low
+		}
+	}
+
+	init {
+		features.forEach { add(it) }
+	}
+
+	fun add(feature: Feature) {
+		val position = features.size
+		features.add(feature)
+		positions.putIfAbsent(feature, position)
+		feature.javaClass.supertypes.forEach { classPositions[it]?.add(position) }
+	}
+
+	private operator fun get(position: Int) = features[position]
+
+	private fun positionOf(feature: Feature) = positions[feature]
+
+	private fun positionsOf(cls: Class<*>) = classPositions.getOrPut(cls) {
+		val found = Positions()
+		features.forEachIndexed { position, feature ->
+			if (cls.isInstance(feature)) found.add(position)
+		}
+		found
+	}
+
+	/**
+	 * @return an immutable view of the features resolved so far
+	 */
+	fun view() = ResolvedFeatures(this, features.size)
+
+	/**
+	 * an immutable view of the first [size] features of [index]
+	 *
+	 * [Dependency]s can use this to look up resolved features by class without scanning them
+	 */
+	class ResolvedFeatures internal constructor(private val index: ResolvedFeatureIndex, override val size: Int) : AbstractList<Feature>() {
+		override fun get(index: Int): Feature {
+			if (index < 0 || index >= size) throw IndexOutOfBoundsException("index: $index, size: $size")
+			return this.index[index]
+		}
+
+		override fun contains(element: Feature): Boolean {
+			val position = index.positionOf(element) ?: return false
+			return position < size
+		}
+
+		/**
+		 * all resolved instances of [cls], in the order they were resolved
+		 */
+		fun <T> instancesOf(cls: Class<T>): List<T> {
+			val positions = index.positionsOf(cls)
+			val count = positions.countBelow(size)
+			return List(count) { cls.cast(index[positions.array[it]]) }
+		}
+
+		/**
+		 * all resolved instances of any of [classes], in the order they were resolved
+		 *
+		 * @param exactly if the class of a feature must be one of [classes], rather than extend or implement one of them
+		 */
+		fun instancesOf(classes: Collection<Class<out Feature>>, exactly: Boolean): List<Feature> {
+			val found = sortedSetOf<Int>()
+			classes.forEach { cls ->
+				val positions = index.positionsOf(cls)
+				for (i in 0 until positions.countBelow(size)) {
+					val position = positions.array[i]
+					if (!exactly || index[position].javaClass == cls) found.add(position)
+				}
+			}
+			return found.map { index[it] }
+		}
+	}
+}
+
+internal typealias ResolvedFeatures = ResolvedFeatureIndex.ResolvedFeatures
@@ -0,0 +1,108 @@
+package dev.frozenmilk.dairy.core.util
+
+import java.lang.reflect.Method
+
+/**
+ * bytes allocated by each run of some piece of code
+ *
+ * recording never allocates, but is not thread safe,
+ * only one thread should record into this at a time, and reads made while it is being recorded into may be slightly off
+ */
+class AllocationStats {
+	/**
+	 * the number of runs recorded
+	 */
+	var count = 0L
+		private set
+
+	/**
+	 * the bytes allocated by all recorded runs
+	 */
+	var total = 0L
+		private set
+
+	/**
+	 * the most bytes allocated by a single run
+	 */
+	var max = 0L
+		private set
+
+	/**
+	 * the bytes allocated by the most recent run
+	 */
+	var last = 0L
+		private set
+
+	/**
+	 * the average bytes allocated by a run
+	 */
+	val mean
+		get() = if (count == 0L) 0.0 else total.toDouble() / count
+
+	fun record(bytes: Long) {
+		last = bytes
+		count++
+		total += bytes
+		if (bytes > max) max = bytes
+	}
+
+	fun reset() {
+		count = 0L
+		total = 0L
+		max = 0L
+		last = 0L
+	}
+
+	override fun toString() = "AllocationStats(count=$count, mean=${mean}B, max=${max}B, last=${last}B)"
+}
+
+/**
+ * reads the bytes allocated by the current thread, where the runtime provides a counter for it
+ *
+ * uses `com.sun.management.ThreadMXBean`, which is found reflectively, as it is not available on all runtimes (e.g. Android)
+ */
+internal object AllocationCounter {
+	private val bean: Any?
+	private val threadAllocatedBytes: Method?
+
+	init {
+		var bean: Any? = null
+		var threadAllocatedBytes: Method? = null
+		try {
+			val threadMXBean = Class.forName("com.sun.management.ThreadMXBean")
+			val candidate = Class.forName("java.lang.management.ManagementFactory").getMethod("getThreadMXBean").invoke(null)
+			if (threadMXBean.isInstance(candidate) && threadMXBean.getMethod("isThreadAllocatedMemorySupported").invoke(candidate) == true) {
+				threadMXBean.getMethod("setThreadAllocatedMemoryEnabled", Boolean::class.javaPrimitiveType).invoke(candidate, true)
+				bean = candidate
+				threadAllocatedBytes = threadMXBean.getMethod("getThreadAllocatedBytes", Long::class.javaPrimitiveType)
+			}
+		}
+		catch (e: Throwable) {
+			// not supported
+		}
+		this.bean = bean
+		this.threadAllocatedBytes = threadAllocatedBytes
+	}
+
+	val supported
+		get() = threadAllocatedBytes != null
+
+	/**
+	 * bytes allocated by reading the counter, which are subtracted from [allocatedSince]
+	 */
+	private val overhead = if (!supported) 0L else (0 until 8).minOf {
+		val start = currentThreadAllocatedBytes()
+		currentThreadAllocatedBytes() - start
+	}
+
+	/**
+	 * @return the total bytes allocated by the current thread so far, or 0 if not [supported]
+	 */
+	fun currentThreadAllocatedBytes() = threadAllocatedBytes?.invoke(bean, Thread.currentThread().id) as Long? ?: 0L
+
+	/**
+	 * @param start a previous result of [currentThreadAllocatedBytes], made on this thread
+	 * @return the bytes allocated by the current thread since [start]
+	 */
+	fun allocatedSince(start: Long) = (currentThreadAllocatedBytes() - start - overhead).coerceAtLeast(0L)
+}
@@ -0,0 +1,133 @@
+package dev.frozenmilk.dairy.core.util
+
+import com.qualcomm.robotcore.util.RobotLog
+import dev.frozenmilk.dairy.core.FeatureRegistrar
+import java.util.concurrent.ExecutorService
+import java.util.concurrent.Executors
+
+/**
+ * decides if, and how, [FeatureRegistrar] runs a garbage collection at each [Point]
+ *
+ * set using [FeatureRegistrar.gcPolicy]
+ */
+fun interface GcPolicy {
+	/**
+	 * @param usedBytes the heap currently in use
+	 * @param maxBytes the most heap that may be used
+	 */
+	fun decide(point: Point, usedBytes: Long, maxBytes: Long): Decision
+
+	enum class Point {
+		/**
+		 * after the user's init, and the post init hooks, right before init_loop starts
+		 */
+		POST_INIT,
+
+		/**
+		 * after the OpMode has stopped, and features have been cleaned up
+		 */
+		POST_STOP,
+	}
+
+	enum class Decision {
+		SKIP,
+
+		/**
+		 * collects on the OpMode thread, before it moves on
+		 */
+		COLLECT,
+
+		/**
+		 * collects on a background thread, so that the OpMode thread can move on,
+		 * at [Point.POST_INIT], this overlaps the collection with init_loop
+		 */
+		COLLECT_ASYNC,
+	}
+
+	companion object {
+		/**
+		 * always collects on the OpMode thread, the default
+		 */
+		@JvmField
+		val ALWAYS = GcPolicy { _, _, _ -> Decision.COLLECT }
+
+		@JvmField
+		val NEVER = GcPolicy { _, _, _ -> Decision.SKIP }
+
+		@JvmField
+		val ASYNC = GcPolicy { _, _, _ -> Decision.COLLECT_ASYNC }
+
+		/**
+		 * only collects if at least [fraction] of the max heap is in use
+		 *
+		 * @param decision how to collect when over the threshold
+		 */
+		@JvmStatic
+		@JvmOverloads
+		fun aboveThreshold(fraction: Double, decision: Decision = Decision.COLLECT) = GcPolicy { _, usedBytes, maxBytes ->
+			if (usedBytes >= maxBytes * fraction) decision
+			else Decision.SKIP
+		}
+	}
+}
+
+/**
+ * a collection run by [FeatureRegistrar]
+ *
+ * @param usedBytesBefore the heap in use before collecting
+ * @param usedBytesAfter the heap in use after collecting
+ * @param duration how long the collection took, in nanoseconds
+ */
+class GcRecord(
+	val point: GcPolicy.Point,
+	val decision: GcPolicy.Decision,
+	val usedBytesBefore: Long,
+	val usedBytesAfter: Long,
+	val duration: Long,
+) {
+	val freedBytes
+		get() = usedBytesBefore - usedBytesAfter
+
+	override fun toString() = "$point $decision: ${usedBytesBefore / 1024}KiB -> ${usedBytesAfter / 1024}KiB in ${duration / 1_000_000.0}ms"
+}
+
+/**
+ * runs collections as decided by [FeatureRegistrar.gcPolicy], and keeps the most recent [GcRecord]s
+ */
+internal object GarbageCollector {
+	private const val TAG = "DairyCore > GarbageCollector"
+	private const val RECORDS = 16
+
+	private val records = ArrayDeque<GcRecord>(RECORDS)
+
+	val recentRecords: List<GcRecord>
+		get() = synchronized(records) { records.toList() }
+
+	private val executor: ExecutorService by lazy {
+		Executors.newSingleThreadExecutor { runnable ->
+			Thread(runnable, "DairyCore GC").apply { isDaemon = true }
+		}
+	}
+
+	private fun usedBytes() = Runtime.getRuntime().let { it.totalMemory() - it.freeMemory() }
+
+	fun collect(policy: GcPolicy, point: GcPolicy.Point) {
+		val before = usedBytes()
+		when (val decision = policy.decide(point, before, Runtime.getRuntime().maxMemory())) {
+			GcPolicy.Decision.SKIP -> return
+			GcPolicy.Decision.COLLECT -> collect(point, decision, before)
+			GcPolicy.Decision.COLLECT_ASYNC -> executor.execute { collect(point, decision, usedBytes()) }
+		}
+	}
+
+	private fun collect(point: GcPolicy.Point, decision: GcPolicy.Decision, before: Long) {
+		val start = System.nanoTime()
+		System.gc()
+		val record = GcRecord(point, decision, before, usedBytes(), System.nanoTime() - start)
+		synchronized(records) {
+			if (records.size == RECORDS) records.removeFirst()
+			records.addLast(record)
+		}
+		RobotLog.vv(TAG, "%s", record)
+	}
+}
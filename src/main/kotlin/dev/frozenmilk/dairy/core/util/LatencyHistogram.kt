@@ -0,0 +1,87 @@
+package dev.frozenmilk.dairy.core.util
+
+/**
+ * a fixed size histogram of durations, in nanoseconds
+ *
+ * buckets are exponential, with 4 per power of 2, so reported percentiles are within 25% of the true value, and never more than [max]
+ *
+ * recording is cheap and never allocates, but is not thread safe,
+ * a histogram should only be recorded into by one thread at a time, and reads made while it is being recorded into may be slightly off
+ */
+class LatencyHistogram {
+	private val buckets = LongArray(BUCKETS)
+
+	/**
+	 * the number of durations recorded
+	 */
+	var count = 0L
+		private set
+
+	/**
+	 * the longest duration recorded, in nanoseconds
+	 */
+	var max = 0L
+		private set
+
+	/**
+	 * the most recently recorded duration, in nanoseconds
+	 */
+	var last = 0L
+		private set
+
+	fun record(nanos: Long) {
+		last = nanos
+		buckets[bucketOf(nanos)]++
+		count++
+		if (nanos > max) max = nanos
+	}
+
+	/**
+	 * @param percentile in the range 0..100
+	 * @return an upper bound for the duration below which [percentile] of recorded durations fall, in nanoseconds, or 0 if nothing has been recorded
+	 */
+	fun percentile(percentile: Double): Long {
+		if (count == 0L) return 0L
+		val target = Math.ceil(count * (percentile.coerceIn(0.0, 100.0) / 100.0)).toLong().coerceAtLeast(1L)
+		var seen = 0L
+		buckets.forEachIndexed { bucket, bucketCount ->
+			seen += bucketCount
+			if (seen >= target) return upperBoundOf(bucket).coerceAtMost(max)
+		}
+		return max
+	}
+
+	val p50
+		get() = percentile(50.0)
+
+	val p99
+		get() = percentile(99.0)
+
+	fun reset() {
+		buckets.fill(0L)
+		count = 0L
+		max = 0L
+		last = 0L
+	}
+
+	override fun toString() = "LatencyHistogram(count=$count, p50=${p50}ns, p99=${p99}ns, max=${max}ns)"
+
+	private companion object {
+		const val SUB_BUCKET_BITS = 2
+		const val SUB_BUCKETS = 1 shl SUB_BUCKET_BITS
+		const val BUCKETS = (63 - SUB_BUCKET_BITS) * SUB_BUCKETS + SUB_BUCKETS
+
+		fun bucketOf(nanos: Long): Int {
+			if (nanos < SUB_BUCKETS) return nanos.coerceAtLeast(0L).toInt()
+			val shift = 63 - java.lang.Long.numberOfLeadingZeros(nanos) - SUB_BUCKET_BITS
+			return (shift + 1) * SUB_BUCKETS + ((nanos ushr shift).toInt() and (SUB_BUCKETS - 1))
+		}
+
+		fun upperBoundOf(bucket: Int): Long {
+			if (bucket < SUB_BUCKETS) return bucket.toLong()
+			val shift = bucket / SUB_BUCKETS - 1
+			val lower = (SUB_BUCKETS + bucket % SUB_BUCKETS).toLong() shl shift
+			return lower + (1L shl shift) - 1
+		}
+	}
+}
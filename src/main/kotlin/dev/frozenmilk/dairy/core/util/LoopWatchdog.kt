@@ -0,0 +1,142 @@
+package dev.frozenmilk.dairy.core.util
+
+import com.qualcomm.robotcore.util.RobotLog
+import dev.frozenmilk.dairy.core.Feature
+import dev.frozenmilk.dairy.core.FeatureHook
+import dev.frozenmilk.dairy.core.FeatureRegistrar
+import dev.frozenmilk.dairy.core.dependency.Dependency
+import dev.frozenmilk.dairy.core.dependency.annotation.SingleAnnotation
+import java.lang.annotation.Inherited
+import kotlin.concurrent.Volatile
+
+/**
+ * times each loop of an OpMode annotated with [Attach], from the start of [FeatureRegistrar.opModePreLoop] to the end of [FeatureRegistrar.opModePostLoop]
+ *
+ * loops that take longer than [Attach.budget] are recorded as [Incident]s, attributed to whichever of the user's loop, or a feature's loop hook, took the longest
+ *
+ * the most recent [Attach.incidents] incidents are kept, and are not cleared until the next watched OpMode starts
+ *
+ * each incident is logged, but at most once a second, with a count of those that weren't
+ */
+object LoopWatchdog : Feature {
+	private const val TAG = "DairyCore > LoopWatchdog"
+
+	override var dependency: Dependency<*> = SingleAnnotation(Attach::class.java)
+		.onResolve {
+			budgetNanos = (it.budget * 1_000_000.0).toLong()
+			synchronized(this) {
+				ring = arrayOfNulls(it.incidents.coerceAtLeast(1))
+				next = 0
+				overruns = 0
+			}
+			lastWarning = 0L
+			unwarned = 0
+		}
+
+	private var budgetNanos = Long.MAX_VALUE
+	private var ring = arrayOfNulls<Incident>(0)
+	private var next = 0
+
+	/**
+	 * the hooks that run within a loop, which may be blamed for it going over budget
+	 */
+	private val LOOP_HOOKS = arrayOf(FeatureHook.PRE_USER_LOOP, FeatureHook.POST_USER_LOOP)
+
+	/**
+	 * the shortest time between over budget warnings, in nanoseconds, so that an OpMode that is over budget every loop doesn't flood the log
+	 */
+	private const val WARNING_INTERVAL = 1_000_000_000L
+	private var lastWarning = 0L
+	private var unwarned = 0
+
+	/**
+	 * the number of loops that have gone over budget in the current, or last, watched OpMode, including those no longer in [incidents]
+	 */
+	@JvmStatic
+	@Volatile
+	var overruns = 0L
+		private set
+
+	/**
+	 * the most recent loops that went over budget, oldest first
+	 */
+	@JvmStatic
+	val incidents: List<Incident>
+		@Synchronized get() {
+			val size = ring.size
+			return (0 until size).mapNotNull { ring[(next + it) % size] }
+		}
+
+	/**
+	 * a loop that went over budget
+	 *
+	 * @param loop the length of the loop, in nanoseconds
+	 * @param userLoop the time spent in the user's loop, in nanoseconds
+	 * @param feature the simple class name of the feature whose hook took the longest, or null if [userLoop] took the longest
+	 * @param hook the name of [feature]'s hook that took the longest, or null if [userLoop] took the longest
+	 * @param culpritLoop the time spent in the user's loop, or [feature]'s [hook], whichever is being blamed, in nanoseconds
+	 */
+	class Incident(
+		val loop: Long,
+		val userLoop: Long,
+		val feature: String?,
+		val hook: String?,
+		val culpritLoop: Long,
+	) {
+		val culprit
+			get() = if (feature == null) "user code" else "$feature.$hook"
+
+		override fun toString() = "loop took ${loop / 1_000_000.0}ms, $culprit took ${culpritLoop / 1_000_000.0}ms"
+	}
+
+	/**
+	 * called by [FeatureRegistrar] at the end of each loop
+	 */
+	internal fun onLoop(loopStart: Long, userLoopStart: Long, userLoopEnd: Long, loopEnd: Long) {
+		val loop = loopEnd - loopStart
+		if (loop <= budgetNanos) return
+
+		val userLoop = userLoopEnd - userLoopStart
+		var feature: Feature? = null
+		var hook: String? = null
+		var culpritLoop = userLoop
+		FeatureRegistrar.activeFeatures.forEach { active ->
+			val histograms = FeatureRegistrar.hookLatencyHistograms(active) ?: return@forEach
+			LOOP_HOOKS.forEach {
+				val last = histograms[it.ordinal].last
+				if (last > culpritLoop) {
+					feature = active
+					hook = it.methodName
+					culpritLoop = last
+				}
+			}
+		}
+
+		val incident = Incident(loop, userLoop, feature?.let { it::class.java.simpleName }, hook, culpritLoop)
+		synchronized(this) {
+			overruns++
+			if (ring.isNotEmpty()) {
+				ring[next] = incident
+				next = (next + 1) % ring.size
+			}
+		}
+		if (lastWarning == 0L || loopEnd - lastWarning >= WARNING_INTERVAL) {
+			if (unwarned == 0) RobotLog.ww(TAG, "over budget: %s", incident)
+			else RobotLog.ww(TAG, "over budget: %s, and %d more loops since the last warning", incident, unwarned)
+			lastWarning = loopEnd
+			unwarned = 0
+		}
+		else unwarned++
+	}
+
+	/**
+	 * watches the loops of the annotated OpMode
+	 *
+	 * @param budget the longest a loop may take before it is recorded as an [Incident], in milliseconds
+	 * @param incidents the number of [Incident]s to keep
+	 */
+	@Target(AnnotationTarget.CLASS)
+	@Retention(AnnotationRetention.RUNTIME)
+	@Inherited
+	annotation class Attach(val budget: Double, val incidents: Int = 32)
+}
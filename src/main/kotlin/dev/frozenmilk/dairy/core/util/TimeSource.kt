@@ -0,0 +1,43 @@
+package dev.frozenmilk.dairy.core.util
+
+import dev.frozenmilk.dairy.core.FeatureRegistrar
+
+/**
+ * where [FeatureRegistrar] reads the time from
+ *
+ * set using [FeatureRegistrar.timeSource]
+ */
+fun interface TimeSource {
+	/**
+	 * @return the current time, in nanoseconds, from an arbitrary origin, like [System.nanoTime]
+	 */
+	fun nanoTime(): Long
+
+	companion object {
+		/**
+		 * [System.nanoTime], the default
+		 */
+		@JvmField
+		val SYSTEM = TimeSource { System.nanoTime() }
+	}
+}
+
+/**
+ * a [TimeSource] that only moves when [advance]d, so that runs against it can go faster than real time, and be reproduced
+ */
+class VirtualTimeSource @JvmOverloads constructor(private var nanos: Long = 0L) : TimeSource {
+	override fun nanoTime() = nanos
+
+	/**
+	 * moves the time forward by [nanos] nanoseconds
+	 */
+	fun advance(nanos: Long) {
+		require(nanos >= 0) { "time can't go backwards, tried to advance by $nanos nanoseconds" }
+		this.nanos += nanos
+	}
+
+	/**
+	 * moves the time forward by [seconds] seconds
+	 */
+	fun advanceSeconds(seconds: Double) = advance((seconds * 1e9).toLong())
+}
@@ -0,0 +1,85 @@
+package dev.frozenmilk.dairy.core.util
+
+import java.lang.ref.ReferenceQueue
+import java.lang.ref.WeakReference
+
+/**
+ * a set that compares its elements by identity, and holds them weakly
+ *
+ * elements that get garbage collected are removed incrementally, as the set is used
+ *
+ * iterates in insertion order
+ */
+internal class WeakIdentitySet<T : Any> : Iterable<T> {
+	private val queue = ReferenceQueue<T>()
+	private val entries = LinkedHashSet<Entry<T>>()
+
+	private class Entry<T : Any>(referent: T, queue: ReferenceQueue<in T>?) : WeakReference<T>(referent, queue) {
+		private val hash = System.identityHashCode(referent)
+		override fun hashCode() = hash
+		override fun equals(other: Any?): Boolean {
+			if (other === this) return true
+			if (other !is Entry<*> || other.hash != hash) return false
+			val referent = get() ?: return false
+			return referent === other.get()
+		}
+	}
+
+	/**
+	 * removes the entries of elements that have been garbage collected
+	 */
+	@Suppress("UNCHECKED_CAST")
+	fun expungeStaleEntries() {
+		while (true) {
+			val entry = queue.poll() ?: return
+			// only Entries are ever queued against this
+			entries.remove(entry as Entry<T>)
+		}
+	}
+
+	/**
+	 * clears and queues the entry of [element], as the garbage collector does once an element has been collected
+	 *
+	 * lets tests drop an element deterministically, rather than waiting on a collection
+	 */
+	fun simulateCollection(element: T) {
+		val entry = entries.find { it.get() === element } ?: return
+		entry.clear()
+		entry.enqueue()
+	}
+
+	/**
+	 * @return true if [element] was not already in this set
+	 */
+	fun add(element: T): Boolean {
+		expungeStaleEntries()
+		return entries.add(Entry(element, queue))
+	}
+
+	/**
+	 * @return true if [element] was in this set
+	 */
+	fun remove(element: T): Boolean {
+		expungeStaleEntries()
+		return entries.remove(Entry(element, null))
+	}
+
+	operator fun contains(element: T): Boolean {
+		expungeStaleEntries()
+		return entries.contains(Entry(element, null))
+	}
+
+	/**
+	 * may still count elements that have been garbage collected very recently
+	 */
+	val size: Int
+		get() {
+			expungeStaleEntries()
+			return entries.size
+		}
+
+	override fun iterator(): Iterator<T> {
+		expungeStaleEntries()
+		return entries.asSequence().mapNotNull { it.get() }.iterator()
+	}
+}
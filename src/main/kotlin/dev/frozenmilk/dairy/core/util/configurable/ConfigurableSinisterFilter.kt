@@ -2,14 +2,18 @@ package dev.frozenmilk.dairy.core.util.configurable
 
 import android.content.Context
 import com.qualcomm.robotcore.util.RobotLog
+import dev.frozenmilk.dairy.core.util.index.StaticInstanceIndex
 import dev.frozenmilk.sinister.SinisterFilter
 import dev.frozenmilk.sinister.apphooks.OnCreate
 import dev.frozenmilk.sinister.staticInstancesOf
 import dev.frozenmilk.sinister.targeting.EmptySearch
-import dev.frozenmilk.sinister.targeting.WideSearch
+import java.util.concurrent.ConcurrentHashMap
 
 internal object ConfigurableSinisterFilter : SinisterFilter, OnCreate {
-	override val targets = WideSearch()
+	/**
+	 * classes covered by the [StaticInstanceIndex] aren't scanned, the ones it found are checked in [onCreate] instead
+	 */
+	override val targets = StaticInstanceIndex.unindexedSearch()
 	private val dairySearch = EmptySearch().include("dev.frozenmilk")
 	private val teamCodeSearch = EmptySearch().include("org.firstinspires.ftc.teamcode")
 
@@ -17,29 +21,67 @@ internal object ConfigurableSinisterFilter : SinisterFilter, OnCreate {
 	private val configurables = mutableListOf<Configurable>()
 	override fun filter(clazz: Class<*>) {
 		configurables.addAll(clazz.staticInstancesOf(Configurable::class.java))
-		configurations.addAll(clazz.staticInstancesOf(Configuration::class.java))
+		val found = clazz.staticInstancesOf(Configuration::class.java)
+		if (found.isEmpty()) return
+		synchronized(this) {
+			configurations.addAll(found)
+			invalidate()
+		}
 	}
 
-	private fun Configuration<*>.detectCycle(): Boolean {
-		return prioritisedOver.any { it == this@detectCycle } || prioritisedOver.any { it.detectCycle(
-			this@detectCycle
-		) }
+	/**
+	 * the [ConfigurationGraph] of [configurations], and the configurations that may be applied, grouped by [Level]
+	 *
+	 * built once after scanning, and rebuilt only if more configurations are found
+	 */
+	private class Plan(val graph: ConfigurationGraph, val levels: Map<Level, List<Configuration<*>>>)
+
+	private var plan: Plan? = null
+
+	/**
+	 * the configurations to apply to each configurable class, in order,
+	 * more than one only if they compete
+	 */
+	private val winners = ConcurrentHashMap<Class<*>, List<Configuration<*>>>()
+
+	private fun invalidate() {
+		plan = null
+		winners.clear()
 	}
 
-	private fun Configuration<*>.detectCycle(toCheck: Configuration<*>): Boolean {
-		return prioritisedOver.any { it == toCheck } || prioritisedOver.any { it.detectCycle(toCheck) }
+	@Synchronized
+	private fun plan(): Plan = plan ?: run {
+		val graph = ConfigurationGraph(configurations)
+		graph.cyclic.forEach {
+			RobotLog.ee("Configuration", "cycle detected during configuration collection for $it")
+		}
+		val levels = configurations
+			.filter { it !in graph.cyclic }
+			.groupBy {
+				if (teamCodeSearch.determineInclusion(it.javaClass.name)) Level.TEAMCODE
+				else if (dairySearch.determineInclusion(it.javaClass.name)) Level.DAIRY
+				else Level.LIBRARY
+			}
+		Plan(graph, levels).also { plan = it }
 	}
 
 	override fun onCreate(context: Context) {
+		StaticInstanceIndex.classes?.forEach { filter(it) }
+		val snapshot = ConfigurationPlanSnapshot(context)
+		val loaded = snapshot.load(configurations)
+		if (loaded != null) {
+			// these were reported when they were worked out, but that may have been a previous boot
+			loaded.values.filter { it.size > 1 }.forEach { toApply ->
+				val competing = toApply.dropLast(1)
+				reportCompeting(competing.singleOrNull() ?: competing, toApply.last())
+			}
+			winners.putAll(loaded)
+		}
 		onCreateCallback()
+		if (loaded == null || winners.keys.any { it !in loaded }) snapshot.save(configurations, winners)
 	}
 
 	fun onCreateCallback() {
-		configurations.removeIf {
-			val res = it.detectCycle()
-			if (res) RobotLog.ee("Configuration", "cycle detected during configuration collection for $it")
-			res
-		}
 		configurables.forEach {
 			it.configure()
 		}
@@ -54,46 +96,39 @@ internal object ConfigurableSinisterFilter : SinisterFilter, OnCreate {
 
 	@Suppress("UNCHECKED_CAST")
 	fun <CONFIGURABLE: Configurable> configure(configurable: CONFIGURABLE) {
-		val cls = configurable.javaClass
-		val classConfigurations: Map<Level, List<Configuration<CONFIGURABLE>>> = configurations
-			.filter { it.configurableClass.isAssignableFrom(cls) }
-			.groupBy {
-				if (teamCodeSearch.determineInclusion(it.javaClass.name)) Level.TEAMCODE
-				else if (dairySearch.determineInclusion(it.javaClass.name)) Level.DAIRY
-				else Level.LIBRARY
-			} as Map<Level, List<Configuration<CONFIGURABLE>>>
+		val toApply = winners.getOrPut(configurable.javaClass) { winnersFor(configurable.javaClass) } as List<Configuration<CONFIGURABLE>>
+		if (toApply.isEmpty()) return
+		try {
+			toApply.forEach { it.configure(configurable) }
+		}
+		catch (e: Throwable) {
+			RobotLog.ee("Configuration", "thrown while applying ${toApply.singleOrNull() ?: toApply} to $configurable:\n%s", e)
+		}
+	}
+
+	/**
+	 * works out the configurations to apply to instances of [cls], in order,
+	 * if configurations compete, all of them are applied
+	 */
+	private fun winnersFor(cls: Class<*>): List<Configuration<*>> {
+		val plan = plan()
+		fun candidates(level: Level) = plan.levels[level]
+			?.filter { it.configurableClass.isAssignableFrom(cls) }
+			?.ifEmpty { null }
 
-		classConfigurations.getOrElse(Level.TEAMCODE) {
-			classConfigurations.getOrElse(Level.LIBRARY) {
-				classConfigurations.getOrElse(Level.DAIRY) {
-					emptyList()
-				}
+		val candidates = candidates(Level.TEAMCODE) ?: candidates(Level.LIBRARY) ?: candidates(Level.DAIRY) ?: return emptyList()
+		return candidates.drop(1).fold(listOf(candidates.first())) { winners, r ->
+			val l = winners.singleOrNull()
+			if (winners.any { it == r || plan.graph.prioritises(it, r) }) winners
+			else if (l != null && plan.graph.prioritises(r, l)) listOf(r)
+			else {
+				reportCompeting(l ?: winners, r)
+				winners + r
 			}
 		}
-			.reduceOrNull { l, r ->
-				return@reduceOrNull if (l.recursePrioritisedOver(r)) l
-				else if (r.recursePrioritisedOver(l)) r
-				else {
-					RobotLog.ee("Configuration", "Found two competing configurations: $l, $r\nThis may cause issues, will apply $l, then $r, try removing the conflicting configurations, or applying your own configuration that prioritises itself over these to resolve this issue.")
-					object : Configuration<CONFIGURABLE> {
-						override val configurableClass: Class<CONFIGURABLE> = l.configurableClass
-						override val prioritisedOver: List<Configuration<in CONFIGURABLE>> = listOf(l, r)
-						override fun configure(configurable: CONFIGURABLE) {
-							l.configure(configurable)
-							r.configure(configurable)
-						}
-					}
-				}
-			}
-			?.also {
-				try {
-					it.configure(configurable)
-				}
-				catch (e: Throwable) {
-					RobotLog.ee("Configuration", "thrown while applying $it to $configurable:\n%s", e)
-				}
-			}
 	}
 
-	private fun <CONFIGURABLE: Configurable> Configuration<in CONFIGURABLE>.recursePrioritisedOver(r: Configuration<CONFIGURABLE>): Boolean = prioritisedOver.contains(r) || prioritisedOver.any { it.recursePrioritisedOver(r) }
+	private fun reportCompeting(competing: Any, r: Configuration<*>) {
+		RobotLog.ee("Configuration", "Found two competing configurations: $competing, $r\nThis may cause issues, will apply $competing, then $r, try removing the conflicting configurations, or applying your own configuration that prioritises itself over these to resolve this issue.")
+	}
 }
\ No newline at end of file
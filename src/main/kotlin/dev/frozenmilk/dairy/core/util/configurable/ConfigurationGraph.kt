@@ -0,0 +1,75 @@
+package dev.frozenmilk.dairy.core.util.configurable
+
+/**
+ * the graph formed by [Configuration.prioritisedOver], built once, in time linear to its size
+ *
+ * each configuration's reachable set is computed once per strongly connected component, in reverse topological order,
+ * so that later lookups of which configurations are prioritised over which are constant time
+ */
+internal class ConfigurationGraph(configurations: Collection<Configuration<*>>) {
+	private val reach = HashMap<Configuration<*>, Set<Configuration<*>>>()
+
+	/**
+	 * configurations that are prioritised over themselves, directly or not
+	 */
+	val cyclic: Set<Configuration<*>>
+
+	init {
+		val cyclic = LinkedHashSet<Configuration<*>>()
+		// tarjan's strongly connected components
+		val indices = HashMap<Configuration<*>, Int>()
+		val lowLinks = HashMap<Configuration<*>, Int>()
+		val stack = ArrayList<Configuration<*>>()
+		val onStack = HashSet<Configuration<*>>()
+
+		fun strongConnect(configuration: Configuration<*>) {
+			val index = indices.size
+			indices[configuration] = index
+			lowLinks[configuration] = index
+			stack.add(configuration)
+			onStack.add(configuration)
+
+			configuration.prioritisedOver.forEach {
+				if (it !in indices) {
+					strongConnect(it)
+					lowLinks[configuration] = minOf(lowLinks[configuration]!!, lowLinks[it]!!)
+				}
+				else if (it in onStack) {
+					lowLinks[configuration] = minOf(lowLinks[configuration]!!, indices[it]!!)
+				}
+			}
+
+			if (lowLinks[configuration] != index) return
+			val component = ArrayList<Configuration<*>>()
+			do {
+				val member = stack.removeAt(stack.lastIndex)
+				onStack.remove(member)
+				component.add(member)
+			} while (member !== configuration)
+
+			// every component this one points to has already been completed
+			val componentReach = HashSet<Configuration<*>>()
+			component.forEach { member ->
+				member.prioritisedOver.forEach {
+					componentReach.add(it)
+					reach[it]?.let { reachable -> componentReach.addAll(reachable) }
+				}
+			}
+			if (component.size > 1 || configuration in configuration.prioritisedOver) cyclic.addAll(component)
+			component.forEach { reach[it] = componentReach }
+		}
+
+		configurations.forEach { if (it !in indices) strongConnect(it) }
+		this.cyclic = cyclic
+	}
+
+	/**
+	 * if [l] is prioritised over [r], directly or not
+	 *
+	 * [l] need not be part of the graph, as long as what it is prioritised over is
+	 */
+	fun prioritises(l: Configuration<*>, r: Configuration<*>): Boolean {
+		val reachable = reach[l] ?: return l.prioritisedOver.any { it == r || prioritises(it, r) }
+		return r in reachable
+	}
+}
@@ -0,0 +1,75 @@
+package dev.frozenmilk.dairy.core.util.configurable
+
+import android.content.Context
+import com.qualcomm.robotcore.util.RobotLog
+import java.io.File
+import java.security.MessageDigest
+
+/**
+ * the configurations [ConfigurableSinisterFilter] decided to apply to each configurable class, saved to app storage,
+ * so that the next boot of the same build can skip working them out again
+ *
+ * keyed by a hash of the installed app, and of the configurations found while scanning, and what they are prioritised over,
+ * so that any change to the code, including code outside of the app, like OnBotJava, makes the snapshot stale,
+ * anything stale, missing or unreadable is ignored, and the plan is worked out as normal
+ */
+internal class ConfigurationPlanSnapshot(private val file: File, private val buildHash: String) {
+	constructor(context: Context) : this(
+		File(context.filesDir, "dairy/configuration-plan"),
+		File(context.packageCodePath).let { "${it.length()}:${it.lastModified()}" },
+	)
+
+	/**
+	 * [buildHash], and a hash of the names of [configurations], and the names of the configurations each is prioritised over
+	 */
+	private fun key(configurations: Collection<Configuration<*>>): String {
+		val description = configurations
+			.map { configuration ->
+				configuration.javaClass.name + configuration.prioritisedOver.map { it.javaClass.name }.sorted().joinToString(separator = ",", prefix = ">")
+			}
+			.sorted()
+			.joinToString(separator = "\n")
+		val digest = MessageDigest.getInstance("SHA-256").digest(description.toByteArray())
+		return "$buildHash ${digest.joinToString(separator = "") { "%02x".format(it) }}"
+	}
+
+	/**
+	 * @param configurations the configurations found while scanning, which the snapshot is matched against
+	 * @return the configurations to apply to each configurable class, or null if the snapshot can't be used
+	 */
+	fun load(configurations: Collection<Configuration<*>>): Map<Class<*>, List<Configuration<*>>>? {
+		return try {
+			if (!file.exists()) return null
+			val lines = file.readLines()
+			if (lines.firstOrNull() != key(configurations)) return null
+			// configuration classes with more than one instance can't be told apart by name
+			val byName = configurations.groupBy { it.javaClass.name }
+				.mapNotNull { (name, instances) -> instances.singleOrNull()?.let { name to it } }
+				.toMap()
+			val classLoader = ConfigurationPlanSnapshot::class.java.classLoader
+			lines.drop(1).filter { it.isNotEmpty() }.associate { line ->
+				val names = line.split('\t')
+				Class.forName(names[0], false, classLoader) to names.drop(1).map { byName[it] ?: return null }
+			}
+		}
+		catch (e: Throwable) {
+			RobotLog.ww("Configuration", "ignoring unreadable configuration plan snapshot:\n%s", e)
+			null
+		}
+	}
+
+	/**
+	 * @param configurations the configurations found while scanning, which [plan] was worked out from
+	 */
+	fun save(configurations: Collection<Configuration<*>>, plan: Map<Class<*>, List<Configuration<*>>>) {
+		try {
+			file.parentFile?.mkdirs()
+			file.writeText(plan.entries.joinToString(separator = "\n", prefix = "${key(configurations)}\n") { (cls, winners) ->
+				(listOf(cls.name) + winners.map { it.javaClass.name }).joinToString(separator = "\t")
+			})
+		}
+		catch (e: Throwable) {
+			RobotLog.ww("Configuration", "failed to save configuration plan snapshot:\n%s", e)
+		}
+	}
+}
@@ -40,13 +40,17 @@ constructor(
 		controllerCalculation,
 	)
 
-	private var previousTime = System.nanoTime()
+	private var previousTime = nanoTime
+	private var evaluated = false
 	final override val supplier: Supplier<out T> = Supplier {
-		val currentTime = System.nanoTime()
-		val deltaTime = (currentTime - previousTime) / 1e9
+		val currentTime = nanoTime
+		// evaluated again before the clock moved, e.g. twice in one phase, or against a paused time source
+		if (evaluated && currentTime <= previousTime) return@Supplier currentState
+		val deltaTime = (currentTime - previousTime).coerceAtLeast(1L) / 1e9
 		errorSupplier.reset()
 		val res = controllerCalculation.evaluate(zero, stateSupplier, targetSupplier, errorSupplier, deltaTime)
 		previousTime = currentTime
+		evaluated = true
 		res
 	}
 	override var currentState: T = supplier.get()
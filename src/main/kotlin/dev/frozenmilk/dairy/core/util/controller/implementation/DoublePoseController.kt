@@ -6,7 +6,6 @@ import dev.frozenmilk.dairy.core.util.supplier.numeric.CachedMotionComponentSupp
 import dev.frozenmilk.dairy.core.util.supplier.numeric.MotionComponentSupplier
 import dev.frozenmilk.dairy.core.util.supplier.numeric.MotionComponents
 import dev.frozenmilk.util.units.getVelocity
-import dev.frozenmilk.util.units.homogenise
 import dev.frozenmilk.util.units.position.DoublePose2D
 import java.util.function.Consumer
 
@@ -94,11 +93,11 @@ class DoublePoseController : Controller<DoublePose2D> {
 			offset = currentState - value
 		}
 	@get:JvmName("velocity")
-	override val velocity get() = previousPositions.homogenise().getVelocity()
+	override val velocity get() = positionHistory.window().getVelocity()
 	@get:JvmName("rawVelocity")
-	override val rawVelocity get() = previousPositions.last().getVelocity()
+	override val rawVelocity get() = positionHistory.last().getVelocity()
 	@get:JvmName("acceleration")
-	override val acceleration get() = previousVelocities.homogenise().getVelocity()
+	override val acceleration get() = velocityHistory.window().getVelocity()
 	@get:JvmName("rawAcceleration")
-	override val rawAcceleration get() = previousVelocities.last().getVelocity()
+	override val rawAcceleration get() = velocityHistory.last().getVelocity()
 }
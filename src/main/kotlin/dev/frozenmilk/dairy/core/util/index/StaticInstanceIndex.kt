@@ -0,0 +1,126 @@
+package dev.frozenmilk.dairy.core.util.index
+
+import com.qualcomm.robotcore.util.RobotLog
+import dev.frozenmilk.sinister.targeting.SearchTarget
+import dev.frozenmilk.sinister.targeting.WideSearch
+import org.firstinspires.ftc.robotcore.internal.system.AppUtil
+
+/**
+ * reads the index of classes that hold static [dev.frozenmilk.dairy.core.Feature], [dev.frozenmilk.dairy.core.util.configurable.Configurable]
+ * and [dev.frozenmilk.dairy.core.util.configurable.Configuration] instances, as written at build time by `static-instance-index.gradle.kts`
+ *
+ * an index is only used if it was built for the running app, by package, and for the running build,
+ * by the build id the same build stamps into the app's BuildConfig, see [BUILD_ID_FIELD],
+ * indices shipped by libraries, or left over from a build that didn't run the indexer, are ignored
+ *
+ * [dev.frozenmilk.dairy.core.FeatureSinisterFilter] and [dev.frozenmilk.dairy.core.util.configurable.ConfigurableSinisterFilter]
+ * check the indexed classes that may hold instances directly, and still scan every class the index doesn't cover, e.g. OnBotJava, see [unindexedSearch]
+ */
+internal object StaticInstanceIndex {
+	private const val TAG = "DairyCore > StaticInstanceIndex"
+
+	const val RESOURCE = "META-INF/dairy/static-instances"
+
+	/**
+	 * the String field of the app's BuildConfig that holds the id of the build that wrote the index
+	 */
+	const val BUILD_ID_FIELD = "DAIRY_STATIC_INSTANCE_INDEX"
+
+	/**
+	 * an index, as written by the indexer
+	 *
+	 * @param packageName the application id of the app it was built for
+	 * @param buildId the id of the build it was written by
+	 * @param buildConfig the name of the app's BuildConfig class, which holds the id of the running build
+	 * @param holders the classes that may hold static instances, in order
+	 * @param examined every class that the indexer checked, including [holders]
+	 */
+	class Index(val packageName: String?, val buildId: String?, val buildConfig: String?, val holders: List<String>, val examined: Set<String>) {
+		/**
+		 * if this was written for [packageName], by the build with [buildId]
+		 */
+		fun covers(packageName: String, buildId: String?) = buildId != null && this.packageName == packageName && this.buildId == buildId
+
+		companion object {
+			/**
+			 * `#` starts a comment, `@key value` sets a stamp, `+name` is a class that may hold instances, `-name` is one that doesn't
+			 */
+			fun parse(lines: Sequence<String>): Index {
+				val stamps = HashMap<String, String>()
+				val holders = ArrayList<String>()
+				val examined = HashSet<String>()
+				lines.map { it.trim() }
+					.filter { it.isNotEmpty() && !it.startsWith("#") }
+					.forEach { line ->
+						when (line[0]) {
+							'@' -> line.substring(1).split(' ', limit = 2).let { if (it.size == 2) stamps[it[0]] = it[1].trim() }
+							'+' -> line.substring(1).let {
+								holders.add(it)
+								examined.add(it)
+							}
+							'-' -> examined.add(line.substring(1))
+							else -> throw IllegalArgumentException("unexpected line in static instance index: $line")
+						}
+					}
+				return Index(stamps["package"], stamps["build"], stamps["buildConfig"], holders, examined)
+			}
+		}
+	}
+
+	private val classLoader
+		get() = StaticInstanceIndex::class.java.classLoader
+
+	/**
+	 * the index for the running build, or null if there isn't one, or it couldn't be read
+	 */
+	private val index: Index? by lazy {
+		try {
+			val resources = classLoader?.getResources(RESOURCE) ?: return@lazy null
+			if (!resources.hasMoreElements()) return@lazy null
+			val indices = resources.asSequence().map { url -> url.openStream().bufferedReader().useLines { Index.parse(it) } }.toList()
+			val packageName = AppUtil.getDefContext().packageName
+			val index = indices.firstOrNull { it.packageName == packageName }
+			if (index == null) {
+				RobotLog.ww(TAG, "found ${indices.size} indices, but none for $packageName, scanning")
+				return@lazy null
+			}
+			if (!index.covers(packageName, index.buildConfig?.let { runningBuildId(it) })) {
+				RobotLog.ww(TAG, "index for $packageName is from another build, scanning, check that the indexer runs as part of the build")
+				return@lazy null
+			}
+			RobotLog.vv(TAG, "found index of ${index.examined.size} classes, ${index.holders.size} of which may hold instances")
+			index
+		}
+		catch (e: Throwable) {
+			RobotLog.ee(TAG, "failed to read index, falling back to scanning:\n%s", e)
+			null
+		}
+	}
+
+	private fun runningBuildId(buildConfig: String) = try {
+		Class.forName(buildConfig, true, classLoader).getField(BUILD_ID_FIELD).get(null) as? String
+	}
+	catch (e: Throwable) {
+		null
+	}
+
+	/**
+	 * a search over the classes that aren't covered by the index, every class if there is no index
+	 */
+	fun unindexedSearch(): SearchTarget = WideSearch().apply { index?.examined?.forEach { exclude(it) } }
+
+	/**
+	 * the indexed classes that may hold instances, skipping any that can't be loaded, or null if there is no index
+	 */
+	val classes: List<Class<*>>? by lazy {
+		index?.holders?.mapNotNull {
+			try {
+				Class.forName(it, true, classLoader)
+			}
+			catch (e: Throwable) {
+				RobotLog.ww(TAG, "failed to load indexed class $it:\n%s", e)
+				null
+			}
+		}
+	}
+}
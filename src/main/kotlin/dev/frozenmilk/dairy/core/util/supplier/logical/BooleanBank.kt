@@ -0,0 +1,266 @@
+package dev.frozenmilk.dairy.core.util.supplier.logical
+
+import dev.frozenmilk.dairy.core.Feature
+import dev.frozenmilk.dairy.core.FeatureRegistrar
+import dev.frozenmilk.dairy.core.dependency.Dependency
+import dev.frozenmilk.dairy.core.dependency.lazy.Yielding
+import dev.frozenmilk.dairy.core.wrapper.Wrapper
+import java.util.function.BooleanSupplier
+
+/**
+ * up to 64 boolean inputs, sampled into the bits of a [Long] each update,
+ * so that the edges and toggles of all of them are worked out together, and only the bank is a registered [Feature]
+ *
+ * each input is [add]ed, and read through its [Input], which is an [IEnhancedBooleanSupplier],
+ * combining or debouncing an [Input] adds another input to the same bank
+ *
+ * [deregister]s at the end of an OpMode
+ */
+@Suppress("INAPPLICABLE_JVM_NAME")
+class BooleanBank : Feature {
+	/**
+	 * reads an input, given the inputs sampled before it in this update
+	 */
+	private fun interface Sampler {
+		fun sample(sampled: Long): Boolean
+	}
+
+	private val samplers = arrayOfNulls<Sampler>(CAPACITY)
+	private val risingDebounces = LongArray(CAPACITY)
+	private val fallingDebounces = LongArray(CAPACITY)
+	private val timeMarkers = LongArray(CAPACITY)
+
+	/**
+	 * the number of inputs in this bank
+	 */
+	var size = 0
+		private set
+
+	/**
+	 * the inputs with a debounce, which have to be updated one at a time
+	 */
+	private var debounced = 0L
+	private var previous = 0L
+	private var current = 0L
+	private var _toggleTrue = 0L
+	private var _toggleFalse = 0L
+
+	/**
+	 * if debouncing is timed with [FeatureRegistrar.loopNanoTime], rather than read from [FeatureRegistrar.nanoTime] on each update
+	 *
+	 * defaults to true
+	 */
+	var usesLoopClock = true
+
+	private fun add(sampler: Sampler, risingDebounce: Long, fallingDebounce: Long): Input {
+		check(size < CAPACITY) { "a BooleanBank can hold at most $CAPACITY inputs" }
+		val index = size++
+		val bit = 1L shl index
+		samplers[index] = sampler
+		risingDebounces[index] = risingDebounce
+		fallingDebounces[index] = fallingDebounce
+		if (risingDebounce != 0L || fallingDebounce != 0L) debounced = debounced or bit
+		if (sampler.sample(current)) {
+			current = current or bit
+			previous = previous or bit
+			_toggleTrue = _toggleTrue or bit
+			_toggleFalse = _toggleFalse or bit
+		}
+		return Input(index)
+	}
+
+	/**
+	 * adds [booleanSupplier] to this bank
+	 */
+	fun add(booleanSupplier: BooleanSupplier) = add({ booleanSupplier.asBoolean }, 0, 0)
+
+	/**
+	 * adds [booleanSupplier] to this bank, debounced
+	 *
+	 * @param risingDebounce is applied to the rising edge
+	 * @param fallingDebounce is applied to the falling edge
+	 */
+	fun add(booleanSupplier: BooleanSupplier, risingDebounce: Double, fallingDebounce: Double) =
+		add({ booleanSupplier.asBoolean }, (risingDebounce * 1E9).toLong(), (fallingDebounce * 1E9).toLong())
+
+	private fun update() {
+		previous = current
+		var sampled = 0L
+		for (i in 0 until size) {
+			if (samplers[i]!!.sample(sampled)) sampled = sampled or (1L shl i)
+			// debounced inputs have to settle before the inputs after them can read them
+			if (debounced and (1L shl i) != 0L) sampled = debounce(i, sampled)
+		}
+		current = sampled
+		_toggleTrue = _toggleTrue xor (current and previous.inv())
+		_toggleFalse = _toggleFalse xor (previous and current.inv())
+	}
+
+	/**
+	 * @return [sampled], with input [i] only changed if it has been held for long enough
+	 */
+	private fun debounce(i: Int, sampled: Long): Long {
+		val bit = 1L shl i
+		val time = if (usesLoopClock) FeatureRegistrar.loopNanoTime else FeatureRegistrar.nanoTime()
+		val was = previous and bit != 0L
+		val now = sampled and bit != 0L
+		if (was == now) {
+			timeMarkers[i] = time
+			return sampled
+		}
+		val debounce = if (now) risingDebounces[i] else fallingDebounces[i]
+		if (time - timeMarkers[i] >= debounce) {
+			timeMarkers[i] = time
+			return sampled
+		}
+		return sampled xor bit
+	}
+
+	private var valid = false
+
+	/**
+	 * causes the next read of this bank to update it
+	 */
+	fun invalidate() {
+		valid = false
+	}
+
+	/**
+	 * the state of every input, by bit
+	 */
+	val states: Long get() {
+		if (!valid) {
+			update()
+			valid = true
+		}
+		return current
+	}
+
+	/**
+	 * the rising edges of every input, by bit
+	 */
+	val risingEdges: Long get() = states and previous.inv()
+
+	/**
+	 * the falling edges of every input, by bit
+	 */
+	val fallingEdges: Long get() = states.inv() and previous
+
+	/**
+	 * the [IEnhancedBooleanSupplier.toggleTrue] of every input, by bit
+	 */
+	val toggleTrue: Long get() {
+		states
+		return _toggleTrue
+	}
+
+	/**
+	 * the [IEnhancedBooleanSupplier.toggleFalse] of every input, by bit
+	 */
+	val toggleFalse: Long get() {
+		states
+		return _toggleFalse
+	}
+
+	/**
+	 * an input in the bank
+	 *
+	 * isn't registered on its own, its bank updates it
+	 */
+	inner class Input internal constructor(val index: Int) : IEnhancedBooleanSupplier<Input> {
+		private val bit = 1L shl index
+		val bank get() = this@BooleanBank
+
+		@get:JvmName("toggleTrue")
+		override val toggleTrue get() = this@BooleanBank.toggleTrue and bit != 0L
+		@get:JvmName("toggleFalse")
+		override val toggleFalse get() = this@BooleanBank.toggleFalse and bit != 0L
+		@get:JvmName("state")
+		override val state get() = states and bit != 0L
+		@get:JvmName("onTrue")
+		override val onTrue get() = risingEdges and bit != 0L
+		@get:JvmName("onFalse")
+		override val onFalse get() = fallingEdges and bit != 0L
+
+		/**
+		 * [BooleanBank.autoUpdates], shared by every input in the bank
+		 */
+		override var autoUpdates by this@BooleanBank::autoUpdates
+
+		/**
+		 * invalidates the whole bank
+		 */
+		override fun invalidate() = this@BooleanBank.invalidate()
+
+		/**
+		 * this input before it is debounced,
+		 * so that debouncing it again replaces its debounce, rather than adding to it, as [EnhancedBooleanSupplier] does
+		 */
+		private val undebounced: Sampler
+			get() = if (debounced and bit == 0L) Sampler { it and bit != 0L } else samplers[index]!!
+
+		private fun debounced(rising: Long, falling: Long) = add(undebounced, rising, falling)
+		override fun debounce(debounce: Double) = debounced((debounce * 1E9).toLong(), (debounce * 1E9).toLong())
+		override fun debounce(rising: Double, falling: Double) = debounced((rising * 1E9).toLong(), (falling * 1E9).toLong())
+		override fun debounceRisingEdge(debounce: Double) = debounced((debounce * 1E9).toLong(), fallingDebounces[index])
+		override fun debounceFallingEdge(debounce: Double) = debounced(risingDebounces[index], (debounce * 1E9).toLong())
+
+		/**
+		 * inputs from this bank are read from the ones sampled so far this update, rather than updating the bank again
+		 */
+		private fun read(booleanSupplier: IEnhancedBooleanSupplier<*>): (Long) -> Boolean =
+			if (booleanSupplier is Input && booleanSupplier.bank === bank) {
+				val other = booleanSupplier.bit
+				{ it and other != 0L }
+			}
+			else {
+				{ booleanSupplier.state }
+			}
+
+		override infix fun and(booleanSupplier: BooleanSupplier) = add({ it and bit != 0L && booleanSupplier.asBoolean }, 0, 0)
+		override infix fun and(booleanSupplier: IEnhancedBooleanSupplier<*>) = read(booleanSupplier).let { other -> add({ it and bit != 0L && other(it) }, 0, 0) }
+		override infix fun or(booleanSupplier: BooleanSupplier) = add({ it and bit != 0L || booleanSupplier.asBoolean }, 0, 0)
+		override infix fun or(booleanSupplier: IEnhancedBooleanSupplier<*>) = read(booleanSupplier).let { other -> add({ it and bit != 0L || other(it) }, 0, 0) }
+		override infix fun xor(booleanSupplier: BooleanSupplier) = add({ (it and bit != 0L) xor booleanSupplier.asBoolean }, 0, 0)
+		override infix fun xor(booleanSupplier: IEnhancedBooleanSupplier<*>) = read(booleanSupplier).let { other -> add({ (it and bit != 0L) xor other(it) }, 0, 0) }
+
+		/**
+		 * keeps the debounce information
+		 */
+		override operator fun not() = undebounced.let { undebounced -> add({ !undebounced.sample(it) }, risingDebounces[index], fallingDebounces[index]) }
+
+		override var dependency: Dependency<*> = Yielding
+	}
+
+	//
+	// Impl Feature:
+	//
+	override var dependency: Dependency<*> = Yielding
+
+	init {
+		register()
+	}
+
+	/**
+	 * if this automatically updates, by calling [invalidate] and [states]
+	 */
+	var autoUpdates = true
+	private fun autoUpdatePost() {
+		if (autoUpdates) {
+			invalidate()
+			states
+		}
+	}
+
+	override fun postUserInitHook(opMode: Wrapper) = autoUpdatePost()
+	override fun postUserInitLoopHook(opMode: Wrapper) = autoUpdatePost()
+	override fun postUserStartHook(opMode: Wrapper) = autoUpdatePost()
+	override fun postUserLoopHook(opMode: Wrapper) = autoUpdatePost()
+	override fun cleanup(opMode: Wrapper) {
+		deregister()
+	}
+
+	companion object {
+		const val CAPACITY = Long.SIZE_BITS
+	}
+}
@@ -0,0 +1,65 @@
+package dev.frozenmilk.dairy.core.util.supplier.logical
+
+import dev.frozenmilk.dairy.core.FeatureRegistrar
+import java.util.concurrent.atomic.AtomicLong
+import java.util.function.BooleanSupplier
+
+/**
+ * a node in the expression tree built by [FusedBooleanSupplier]'s combinators
+ *
+ * each node is evaluated at most once per phase, see [FeatureRegistrar.phaseStamp],
+ * so nodes shared between trees are only sampled once,
+ * unless it is evaluated for a [refresh], which samples the nodes of one tree again
+ */
+internal abstract class BooleanExpression {
+	private var stamp = -1L
+	private var refreshedBy = NO_REFRESH
+	private var value = false
+
+	/**
+	 * @param refresh [NO_REFRESH] to use the value cached this phase, if there is one,
+	 * or a token from [nextRefresh], to sample again every node that hasn't already been sampled with the same token
+	 */
+	fun evaluate(refresh: Long): Boolean {
+		val phase = FeatureRegistrar.phaseStamp
+		if (phase == -1L || phase != stamp || (refresh != NO_REFRESH && refresh != refreshedBy)) {
+			value = compute(refresh)
+			stamp = phase
+			refreshedBy = refresh
+		}
+		return value
+	}
+
+	protected abstract fun compute(refresh: Long): Boolean
+
+	class Leaf(private val booleanSupplier: BooleanSupplier) : BooleanExpression() {
+		override fun compute(refresh: Long) = booleanSupplier.asBoolean
+	}
+
+	class And(private val l: BooleanExpression, private val r: BooleanExpression) : BooleanExpression() {
+		override fun compute(refresh: Long) = l.evaluate(refresh) && r.evaluate(refresh)
+	}
+
+	class Or(private val l: BooleanExpression, private val r: BooleanExpression) : BooleanExpression() {
+		override fun compute(refresh: Long) = l.evaluate(refresh) || r.evaluate(refresh)
+	}
+
+	class Xor(private val l: BooleanExpression, private val r: BooleanExpression) : BooleanExpression() {
+		override fun compute(refresh: Long) = l.evaluate(refresh) xor r.evaluate(refresh)
+	}
+
+	class Not(private val expression: BooleanExpression) : BooleanExpression() {
+		override fun compute(refresh: Long) = !expression.evaluate(refresh)
+	}
+
+	companion object {
+		const val NO_REFRESH = 0L
+
+		private val refreshes = AtomicLong(NO_REFRESH)
+
+		/**
+		 * a token that no node has been evaluated with yet
+		 */
+		fun nextRefresh() = refreshes.incrementAndGet()
+	}
+}
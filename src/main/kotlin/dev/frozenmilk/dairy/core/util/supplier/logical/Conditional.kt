@@ -3,31 +3,31 @@ package dev.frozenmilk.dairy.core.util.supplier.logical
 import org.jetbrains.annotations.Contract
 import java.util.function.Supplier
 
-class Conditional<T: Comparable<T>> private constructor(private val supplier: Supplier<T>, private val domainCheckers: List<(T) -> Boolean> = emptyList(), private val domainClosureBuilder: DomainClosureBuilder<T> = DomainClosureBuilder()) : IConditional<T> {
+class Conditional<T: Comparable<T>> private constructor(private val supplier: Supplier<T>, private val domains: List<DomainClosureBuilder<T>> = emptyList(), private val domainClosureBuilder: DomainClosureBuilder<T> = DomainClosureBuilder()) : IConditional<T> {
 	constructor(supplier: Supplier<T>) : this(supplier, emptyList())
 
 	/**
 	 * non-mutating
 	 */
 	override fun lessThan(value: T): Conditional<T> {
-		val (domainClosureBuilder, domainCheckers) = handleBuildState(OperationType.LESSER)
-		return Conditional(supplier, domainCheckers, domainClosureBuilder.lessThan(value))
+		val (domainClosureBuilder, domains) = handleBuildState(OperationType.LESSER)
+		return Conditional(supplier, domains, domainClosureBuilder.lessThan(value))
 	}
 
 	/**
 	 * non-mutating
 	 */
 	override fun lessThanEqualTo(value: T): Conditional<T> {
-		val (domainClosureBuilder, domainCheckers) = handleBuildState(OperationType.LESSER)
-		return Conditional(supplier, domainCheckers, domainClosureBuilder.lessThanEqualTo(value))
+		val (domainClosureBuilder, domains) = handleBuildState(OperationType.LESSER)
+		return Conditional(supplier, domains, domainClosureBuilder.lessThanEqualTo(value))
 	}
 
 	/**
 	 * non-mutating
 	 */
 	override fun greaterThan(value: T): Conditional<T> {
-		val (domainClosureBuilder, domainCheckers) = handleBuildState(OperationType.GREATER)
-		return Conditional(supplier, domainCheckers, domainClosureBuilder.greaterThan(value))
+		val (domainClosureBuilder, domains) = handleBuildState(OperationType.GREATER)
+		return Conditional(supplier, domains, domainClosureBuilder.greaterThan(value))
 	}
 	// when we do a new operation, check to see if it can form a valid closure with the previous operation, if so, perform the closure union, else, close the previous closure and add this one in
 	// closes if upper > lower
@@ -36,25 +36,20 @@ class Conditional<T: Comparable<T>> private constructor(private val supplier: Su
 	 * non-mutating
 	 */
 	override fun greaterThanEqualTo(value: T): Conditional<T> {
-		val (domainClosureBuilder, domainCheckers) = handleBuildState(OperationType.GREATER)
-		return Conditional(supplier, domainCheckers, domainClosureBuilder.greaterThanEqualTo(value))
+		val (domainClosureBuilder, domains) = handleBuildState(OperationType.GREATER)
+		return Conditional(supplier, domains, domainClosureBuilder.greaterThanEqualTo(value))
 	}
 
 	override fun bind(): EnhancedBooleanSupplier {
-		var conditional = this
-		if (domainClosureBuilder.valid()) {
-			conditional = Conditional(supplier, domainCheckers.plus(domainClosureBuilder.build()), domainClosureBuilder)
-		}
-
-		// todo simplify domain checkers by checking their extremes and seeing if one entirely contains another or if two could be merged?
-		// doesn't matter for the moment, but very plausible for later
-		return EnhancedBooleanSupplier {
-			val toCheck = conditional.supplier.get()
-			conditional.domainCheckers.forEach {
-				if (it.invoke(toCheck)) return@EnhancedBooleanSupplier true
-			}
-			false
+		val domainSet = DomainSet.of(if (domainClosureBuilder.valid()) domains.plus(domainClosureBuilder) else domains)
+		val supplier = supplier
+		val doubles = domainSet.doubles()
+		if (doubles != null) {
+			@Suppress("UNCHECKED_CAST")
+			val doubleSupplier = supplier as Supplier<Double>
+			return EnhancedBooleanSupplier { doubles.contains(doubleSupplier.get()) }
 		}
+		return EnhancedBooleanSupplier { domainSet.contains(supplier.get()) }
 	}
 
 	// we should perform a build if:
@@ -62,11 +57,11 @@ class Conditional<T: Comparable<T>> private constructor(private val supplier: Su
 	// * we already have one value loaded in there AND:
 	// * the new value doesn't close, so we actually want inverse values, which we achieve by building the previous value and letting the user continue to cook
 	// * OTHERWISE: if the new value DOES close, we add it and then run a build
-	private fun handleBuildState(operationType: OperationType): Pair<DomainClosureBuilder<T>, List<(T) -> Boolean>> {
+	private fun handleBuildState(operationType: OperationType): Pair<DomainClosureBuilder<T>, List<DomainClosureBuilder<T>>> {
 		return if (domainClosureBuilder.wouldErase(operationType)) {
-			DomainClosureBuilder<T>() to domainCheckers.plus(domainClosureBuilder.build())
+			DomainClosureBuilder<T>() to domains.plus(domainClosureBuilder)
 		}
-		else domainClosureBuilder to domainCheckers
+		else domainClosureBuilder to domains
 	}
 }
 internal enum class OperationType {
@@ -149,4 +144,6 @@ class DomainClosureBuilder<T: Comparable<T>> internal constructor(private val lo
 		}
 	}
 	internal fun valid() = lower != null || upper != null
+
+	internal fun interval() = DomainSet.Interval(lower, lowerInclusive.isInclusive, upper, upperInclusive.isInclusive)
 }
\ No newline at end of file
@@ -0,0 +1,135 @@
+package dev.frozenmilk.dairy.core.util.supplier.logical
+
+/**
+ * the union of the domains built by a [Conditional], as sorted, disjoint intervals,
+ * so that checking a value is a binary search, rather than a check against each domain
+ *
+ * a null bound is unbounded
+ */
+internal class DomainSet<T: Comparable<T>> private constructor(private val intervals: List<Interval<T>>) {
+	class Interval<T: Comparable<T>>(val lower: T?, val lowerInclusive: Boolean, val upper: T?, val upperInclusive: Boolean) {
+		val empty: Boolean
+			get() {
+				if (lower == null || upper == null) return false
+				val cmp = lower.compareTo(upper)
+				return cmp > 0 || (cmp == 0 && !(lowerInclusive && upperInclusive))
+			}
+
+		/**
+		 * if [value] is at or after the start of this
+		 */
+		fun startsBy(value: T) = lower == null || lower.compareTo(value).let { it < 0 || (it == 0 && lowerInclusive) }
+
+		/**
+		 * if [value] is at or before the end of this
+		 */
+		fun endsBy(value: T) = upper == null || value.compareTo(upper).let { it < 0 || (it == 0 && upperInclusive) }
+
+		/**
+		 * if [next], which doesn't start before this, overlaps or touches this
+		 */
+		fun touches(next: Interval<T>): Boolean {
+			if (upper == null || next.lower == null) return true
+			val cmp = next.lower.compareTo(upper)
+			return cmp < 0 || (cmp == 0 && (upperInclusive || next.lowerInclusive))
+		}
+
+		/**
+		 * the union of this and [next], which [touches] this
+		 */
+		fun union(next: Interval<T>): Interval<T> {
+			if (upper == null) return this
+			if (next.upper == null) return Interval(lower, lowerInclusive, null, false)
+			val cmp = next.upper.compareTo(upper)
+			return when {
+				cmp > 0 -> Interval(lower, lowerInclusive, next.upper, next.upperInclusive)
+				cmp == 0 -> Interval(lower, lowerInclusive, upper, upperInclusive || next.upperInclusive)
+				else -> this
+			}
+		}
+	}
+
+	fun contains(value: T): Boolean {
+		// the last interval that starts by value is the only one that could contain it
+		var low = 0
+		var high = intervals.size - 1
+		var candidate = -1
+		while (low <= high) {
+			val mid = (low + high) ushr 1
+			if (intervals[mid].startsBy(value)) {
+				candidate = mid
+				low = mid + 1
+			}
+			else high = mid - 1
+		}
+		return candidate != -1 && intervals[candidate].endsBy(value)
+	}
+
+	/**
+	 * @return this, checked against primitive doubles, if all of its bounds are [Double]s, else null
+	 *
+	 * also null if this is empty, as then there's nothing to tell what type is being checked
+	 */
+	fun doubles(): Doubles? {
+		if (intervals.isEmpty()) return null
+		if (intervals.any { (it.lower != null && it.lower !is Double) || (it.upper != null && it.upper !is Double) }) return null
+		return Doubles(
+			DoubleArray(intervals.size) { (intervals[it].lower as Double?) ?: Double.NEGATIVE_INFINITY },
+			BooleanArray(intervals.size) { intervals[it].lower == null || intervals[it].lowerInclusive },
+			// NaN is above everything, including itself, so it works as an inclusive upper bound for everything
+			DoubleArray(intervals.size) { (intervals[it].upper as Double?) ?: Double.NaN },
+			BooleanArray(intervals.size) { intervals[it].upper == null || intervals[it].upperInclusive },
+		)
+	}
+
+	/**
+	 * [DomainSet], for doubles
+	 *
+	 * compares with [java.lang.Double.compare], to order values the same way as [Double.compareTo]
+	 */
+	class Doubles(private val lowers: DoubleArray, private val lowerInclusive: BooleanArray, private val uppers: DoubleArray, private val upperInclusive: BooleanArray) {
+		fun contains(value: Double): Boolean {
+			var low = 0
+			var high = lowers.size - 1
+			var candidate = -1
+			while (low <= high) {
+				val mid = (low + high) ushr 1
+				val cmp = java.lang.Double.compare(lowers[mid], value)
+				if (cmp < 0 || (cmp == 0 && lowerInclusive[mid])) {
+					candidate = mid
+					low = mid + 1
+				}
+				else high = mid - 1
+			}
+			if (candidate == -1) return false
+			val cmp = java.lang.Double.compare(value, uppers[candidate])
+			return cmp < 0 || (cmp == 0 && upperInclusive[candidate])
+		}
+	}
+
+	companion object {
+		fun <T: Comparable<T>> of(domains: List<DomainClosureBuilder<T>>): DomainSet<T> {
+			val sorted = domains
+				.map { it.interval() }
+				.filterNot { it.empty }
+				.sortedWith { l, r ->
+					when {
+						l.lower == null -> if (r.lower == null) 0 else -1
+						r.lower == null -> 1
+						else -> l.lower.compareTo(r.lower).let { cmp ->
+							if (cmp != 0) cmp
+							// inclusive starts first
+							else r.lowerInclusive.compareTo(l.lowerInclusive)
+						}
+					}
+				}
+			val merged = ArrayList<Interval<T>>(sorted.size)
+			sorted.forEach {
+				val last = merged.lastOrNull()
+				if (last != null && last.touches(it)) merged[merged.lastIndex] = last.union(it)
+				else merged.add(it)
+			}
+			return DomainSet(merged)
+		}
+	}
+}
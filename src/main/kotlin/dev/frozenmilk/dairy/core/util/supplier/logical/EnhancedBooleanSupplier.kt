@@ -1,5 +1,6 @@
 package dev.frozenmilk.dairy.core.util.supplier.logical
 
+import dev.frozenmilk.dairy.core.FeatureRegistrar
 import dev.frozenmilk.dairy.core.dependency.Dependency
 import dev.frozenmilk.dairy.core.dependency.lazy.Yielding
 import dev.frozenmilk.dairy.core.wrapper.Wrapper
@@ -22,10 +23,16 @@ class EnhancedBooleanSupplier private constructor(private val booleanSupplier: B
 	@get:JvmName("toggleFalse")
 	override val toggleFalse
 		get() = _toggleFalse
+	/**
+	 * if debouncing is timed with [FeatureRegistrar.loopNanoTime], rather than read from [FeatureRegistrar.nanoTime] on each update
+	 *
+	 * defaults to true
+	 */
+	var usesLoopClock = true
 	private var timeMarker = 0L
 	private fun update() {
 		previous = current
-		val time = System.nanoTime()
+		val time = if (usesLoopClock) FeatureRegistrar.loopNanoTime else FeatureRegistrar.nanoTime()
 		if(!current && booleanSupplier.asBoolean){
 			if(time - timeMarker >= risingDebounce) {
 				current = true
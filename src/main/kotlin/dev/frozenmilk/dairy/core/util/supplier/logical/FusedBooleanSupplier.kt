@@ -0,0 +1,240 @@
+package dev.frozenmilk.dairy.core.util.supplier.logical
+
+import dev.frozenmilk.dairy.core.FeatureRegistrar
+import dev.frozenmilk.dairy.core.dependency.Dependency
+import dev.frozenmilk.dairy.core.dependency.lazy.Yielding
+import dev.frozenmilk.dairy.core.wrapper.Wrapper
+import java.util.function.BooleanSupplier
+
+/**
+ * an [IEnhancedBooleanSupplier] whose combinators build an expression tree, rather than a chain of suppliers
+ *
+ * it is not an [EnhancedBooleanSupplier], and can't be used where one is expected,
+ * existing [EnhancedBooleanSupplier] combinator chains, like gamepad bindings, are unchanged,
+ * wrap a supplier in a [FusedBooleanSupplier] to opt in
+ *
+ * a [FusedBooleanSupplier] only [register]s once its state is first read,
+ * so the ones that only exist to be combined into others never register, update, or keep edge and toggle state,
+ * only the roots that are actually read do, edges and toggles are tracked from that first read
+ *
+ * each part of the tree is evaluated at most once per phase of an iterative OpMode, even if it is shared between trees
+ *
+ * [deregister]s at the end of an OpMode, and re-[register]s the next time its state is read
+ */
+@Suppress("INAPPLICABLE_JVM_NAME")
+class FusedBooleanSupplier private constructor(private val expression: BooleanExpression, private val risingDebounce: Long, private val fallingDebounce: Long) : IEnhancedBooleanSupplier<FusedBooleanSupplier> {
+	constructor(booleanSupplier: BooleanSupplier) : this(BooleanExpression.Leaf(booleanSupplier), 0, 0)
+	constructor(booleanSupplier: IEnhancedBooleanSupplier<*>) : this(BooleanExpression.Leaf { booleanSupplier.state }, 0, 0)
+
+	private var previous = false
+	private var current = false
+	private var _toggleTrue = false
+	@get:JvmName("toggleTrue")
+	override val toggleTrue
+		get() {
+			state
+			return _toggleTrue
+		}
+	private var _toggleFalse = false
+	@get:JvmName("toggleFalse")
+	override val toggleFalse
+		get() {
+			state
+			return _toggleFalse
+		}
+
+	/**
+	 * if debouncing is timed with [FeatureRegistrar.loopNanoTime], rather than read from [FeatureRegistrar.nanoTime] on each update
+	 *
+	 * defaults to true
+	 */
+	var usesLoopClock = true
+	private var timeMarker = 0L
+	private var registered = false
+	private fun update() {
+		if (!registered) {
+			registered = true
+			register()
+			current = expression.evaluate(refresh)
+			previous = current
+			_toggleTrue = current
+			_toggleFalse = current
+			return
+		}
+		previous = current
+		val time = if (usesLoopClock) FeatureRegistrar.loopNanoTime else FeatureRegistrar.nanoTime()
+		val next = expression.evaluate(refresh)
+		if (!current && next) {
+			if (time - timeMarker >= risingDebounce) {
+				current = true
+				_toggleTrue = !_toggleTrue
+				timeMarker = time
+			}
+		}
+		else if (current && !next) {
+			if (time - timeMarker >= fallingDebounce) {
+				current = false
+				_toggleFalse = !_toggleFalse
+				timeMarker = time
+			}
+		}
+		else {
+			timeMarker = time
+		}
+	}
+
+	private var valid = false
+	private var refresh = BooleanExpression.NO_REFRESH
+
+	/**
+	 * causes the next call to [state] to update this supplier
+	 *
+	 * the update samples every part of this supplier's expression again, even if it was already sampled this phase,
+	 * the values cached by other trees are kept, unless they share parts with this one, in which case they see the new samples
+	 */
+	override fun invalidate() {
+		valid = false
+		refresh = BooleanExpression.nextRefresh()
+	}
+
+	/**
+	 * returns the current boolean state of this
+	 */
+	@get:JvmName("state")
+	override val state: Boolean get() {
+		if (!valid) {
+			update()
+			valid = true
+			refresh = BooleanExpression.NO_REFRESH
+		}
+		return current
+	}
+
+	/**
+	 * a rising edge detector for this
+	 */
+	@get:JvmName("onTrue")
+	override val onTrue: Boolean get() { return state && !previous }
+
+	/**
+	 * a falling edge detector for this
+	 */
+	@get:JvmName("onFalse")
+	override val onFalse: Boolean get() { return !state && previous }
+
+	/**
+	 * non-mutating
+	 *
+	 * @param debounce is applied to both the rising and falling edges
+	 */
+	override fun debounce(debounce: Double) = FusedBooleanSupplier(expression, (debounce * 1E9).toLong(), (debounce * 1E9).toLong())
+
+	/**
+	 * non-mutating
+	 *
+	 * @param rising is applied to the rising edge
+	 * @param falling is applied to the falling edge
+	 */
+	override fun debounce(rising: Double, falling: Double) = FusedBooleanSupplier(expression, (rising * 1E9).toLong(), (falling * 1E9).toLong())
+
+	/**
+	 * non-mutating
+	 *
+	 * @param debounce is applied to the rising edge
+	 */
+	override fun debounceRisingEdge(debounce: Double) = FusedBooleanSupplier(expression, (debounce * 1E9).toLong(), fallingDebounce)
+
+	/**
+	 * non-mutating
+	 *
+	 * @param debounce is applied to the falling edge
+	 */
+	override fun debounceFallingEdge(debounce: Double) = FusedBooleanSupplier(expression, risingDebounce, (debounce * 1E9).toLong())
+
+	/**
+	 * this, as part of a larger expression,
+	 * debouncing only applies to this supplier's own state, so a debounced supplier has to be read as a whole
+	 */
+	private val operand: BooleanExpression
+		get() = if (risingDebounce == 0L && fallingDebounce == 0L) expression else BooleanExpression.Leaf { state }
+
+	private fun operand(booleanSupplier: IEnhancedBooleanSupplier<*>) =
+		if (booleanSupplier is FusedBooleanSupplier) booleanSupplier.operand
+		else BooleanExpression.Leaf { booleanSupplier.state }
+
+	/**
+	 * non-mutating
+	 *
+	 * @return a new FusedBooleanSupplier that combines the two conditions
+	 */
+	override infix fun and(booleanSupplier: BooleanSupplier) = FusedBooleanSupplier(BooleanExpression.And(operand, BooleanExpression.Leaf(booleanSupplier)), 0, 0)
+
+	/**
+	 * non-mutating
+	 *
+	 * @return a new FusedBooleanSupplier that combines the two conditions
+	 */
+	override infix fun and(booleanSupplier: IEnhancedBooleanSupplier<*>) = FusedBooleanSupplier(BooleanExpression.And(operand, operand(booleanSupplier)), 0, 0)
+
+	/**
+	 * non-mutating
+	 *
+	 * @return a new FusedBooleanSupplier that combines the two conditions
+	 */
+	override infix fun or(booleanSupplier: BooleanSupplier) = FusedBooleanSupplier(BooleanExpression.Or(operand, BooleanExpression.Leaf(booleanSupplier)), 0, 0)
+
+	/**
+	 * non-mutating
+	 *
+	 * @return a new FusedBooleanSupplier that combines the two conditions
+	 */
+	override infix fun or(booleanSupplier: IEnhancedBooleanSupplier<*>) = FusedBooleanSupplier(BooleanExpression.Or(operand, operand(booleanSupplier)), 0, 0)
+
+	/**
+	 * non-mutating
+	 *
+	 * @return a new FusedBooleanSupplier that combines the two conditions
+	 */
+	override infix fun xor(booleanSupplier: BooleanSupplier) = FusedBooleanSupplier(BooleanExpression.Xor(operand, BooleanExpression.Leaf(booleanSupplier)), 0, 0)
+
+	/**
+	 * non-mutating
+	 *
+	 * @return a new FusedBooleanSupplier that combines the two conditions
+	 */
+	override infix fun xor(booleanSupplier: IEnhancedBooleanSupplier<*>) = FusedBooleanSupplier(BooleanExpression.Xor(operand, operand(booleanSupplier)), 0, 0)
+
+	/**
+	 * non-mutating
+	 *
+	 * @return a new FusedBooleanSupplier that has the inverse of this, and keeps the debounce information
+	 */
+	override operator fun not() = FusedBooleanSupplier(BooleanExpression.Not(expression), risingDebounce, fallingDebounce)
+
+	//
+	// Impl Feature:
+	//
+	override var dependency: Dependency<*> = Yielding
+
+	/**
+	 * if this automatically updates, by calling [invalidate] and [state]
+	 */
+	override var autoUpdates = true
+	private fun autoUpdatePost() {
+		if (autoUpdates) {
+			// values the tree cached earlier this phase are still current, so they are used, rather than sampled again by invalidate
+			valid = false
+			state
+		}
+	}
+
+	override fun postUserInitHook(opMode: Wrapper) = autoUpdatePost()
+	override fun postUserInitLoopHook(opMode: Wrapper) = autoUpdatePost()
+	override fun postUserStartHook(opMode: Wrapper) = autoUpdatePost()
+	override fun postUserLoopHook(opMode: Wrapper) = autoUpdatePost()
+	override fun cleanup(opMode: Wrapper) {
+		deregister()
+		registered = false
+		valid = false
+	}
+}
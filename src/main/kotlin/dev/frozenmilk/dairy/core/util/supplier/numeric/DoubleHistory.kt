@@ -0,0 +1,51 @@
+package dev.frozenmilk.dairy.core.util.supplier.numeric
+
+/**
+ * a history of timestamped doubles, stored in primitive ring buffers
+ *
+ * only grows if more samples than it can hold fall within the window, so once sized, [add] doesn't allocate
+ */
+internal class DoubleHistory(value: Double, time: Double, capacity: Int = 32) {
+	private var values = DoubleArray(capacity)
+	private val ring = TimedRing(capacity, object : TimedRing.Storage {
+		override fun reallocate(capacity: Int) {
+			val values = DoubleArray(capacity)
+			for (i in 0 until ring.size) values[i] = this@DoubleHistory.values[ring.slot(i)]
+			this@DoubleHistory.values = values
+		}
+	})
+
+	val size
+		get() = ring.size
+
+	init {
+		add(value, time, 0.0)
+	}
+
+	/**
+	 * drops samples that are no longer needed to cover [window] seconds before [time], then adds this one,
+	 * or replaces the newest, if it was taken at [time]
+	 */
+	fun add(value: Double, time: Double, window: Double) {
+		values[ring.push(time, window)] = value
+	}
+
+	val last get() = values[ring.slot(size - 1)]
+
+	/**
+	 * rate of change between the oldest and newest samples
+	 */
+	val slope get() = slope(0)
+
+	/**
+	 * rate of change between the two newest samples
+	 */
+	val rawSlope get() = slope(size - 2)
+
+	private fun slope(from: Int): Double {
+		if (from < 0) return 0.0
+		val deltaTime = ring.time(size - 1) - ring.time(from)
+		if (deltaTime == 0.0) return 0.0
+		return (values[ring.slot(size - 1)] - values[ring.slot(from)]) / deltaTime
+	}
+}
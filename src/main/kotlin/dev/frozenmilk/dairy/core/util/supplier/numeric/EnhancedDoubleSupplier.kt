@@ -2,7 +2,6 @@ package dev.frozenmilk.dairy.core.util.supplier.numeric
 
 import dev.frozenmilk.dairy.core.util.supplier.logical.Conditional
 import dev.frozenmilk.util.units.getVelocity
-import dev.frozenmilk.util.units.homogenise
 import java.util.function.Supplier
 
 @Suppress("INAPPLICABLE_JVM_NAME")
@@ -19,13 +18,13 @@ class EnhancedDoubleSupplier (override val supplier: Supplier<out Double>) : Enh
 			offset = currentState - value
 		}
 	@get:JvmName("velocity")
-	override val velocity get() = previousPositions.homogenise().getVelocity()
+	override val velocity get() = positionHistory.window().getVelocity()
 	@get:JvmName("rawVelocity")
-	override val rawVelocity get() = previousPositions.last().getVelocity()
+	override val rawVelocity get() = positionHistory.last().getVelocity()
 	@get:JvmName("acceleration")
-	override val acceleration get() = previousVelocities.homogenise().getVelocity()
+	override val acceleration get() = velocityHistory.window().getVelocity()
 	@get:JvmName("rawAcceleration")
-	override val rawAcceleration get() = previousVelocities.last().getVelocity()
+	override val rawAcceleration get() = velocityHistory.last().getVelocity()
 	override fun conditionalBindState() = Conditional(this::state)
 	override fun conditionalBindVelocity() = Conditional(this::velocity)
 	override fun conditionalBindVelocityRaw() = Conditional(this::rawVelocity)
@@ -1,6 +1,7 @@
 package dev.frozenmilk.dairy.core.util.supplier.numeric
 
 import dev.frozenmilk.dairy.core.Feature
+import dev.frozenmilk.dairy.core.FeatureRegistrar
 import dev.frozenmilk.dairy.core.dependency.Dependency
 import dev.frozenmilk.dairy.core.dependency.lazy.Yielding
 import dev.frozenmilk.dairy.core.wrapper.Wrapper
@@ -27,6 +28,27 @@ abstract class EnhancedNumericSupplier<N> : IEnhancedNumericSupplier<N>, Feature
 	 * defaults to 20 milliseconds
 	 */
 	override var measurementWindow = 0.02
+		set(value) {
+			field = value
+			reserveHistory()
+		}
+	/**
+	 * the loop rate, in hertz, that the measurement history is sized for, so that it doesn't need to grow once running
+	 *
+	 * defaults to 500
+	 */
+	var expectedLoopRate = 500.0
+		set(value) {
+			field = value
+			reserveHistory()
+		}
+	/**
+	 * if measurements are timestamped with [FeatureRegistrar.loopNanoTime], rather than read from [FeatureRegistrar.nanoTime] as they are taken
+	 *
+	 * defaults to true
+	 */
+	var usesLoopClock = true
+	protected val nanoTime get() = if (usesLoopClock) FeatureRegistrar.loopNanoTime else FeatureRegistrar.nanoTime()
 	private var valid = false
 	/**
 	 * allows invalidation of the cache manually
@@ -34,19 +56,38 @@ abstract class EnhancedNumericSupplier<N> : IEnhancedNumericSupplier<N>, Feature
 	override fun invalidate() {
 		valid = false
 	}
-	protected val previousPositions by lazy { ArrayDeque(listOf(VelocityPacket(currentState, currentState, System.nanoTime() / 1e9, System.nanoTime() / 1e9))) }
-	protected val previousVelocities by lazy { ArrayDeque(listOf(VelocityPacket(zero, zero, System.nanoTime() / 1e9, System.nanoTime() / 1e9))) }
+	private val historyCapacity get() = (measurementWindow * expectedLoopRate).toInt() + 2
+	private var updateTime = nanoTime / 1e9
+	private val positions = lazy { VelocityHistory(currentState, updateTime, historyCapacity) }
+	protected val positionHistory by positions
+	private var velocities: VelocityHistory<N>? = null
+	/**
+	 * only kept from when it is first read, so that suppliers whose acceleration is never used don't pay for it,
+	 * as a result, the first read of acceleration covers no time
+	 */
+	protected val velocityHistory: VelocityHistory<N>
+		get() = velocities ?: VelocityHistory(if (positions.isInitialized()) rawVelocity else zero, updateTime, historyCapacity).also { velocities = it }
+	/**
+	 * a copy of [positionHistory], in the form it used to be kept in
+	 */
+	@Deprecated("copies the history on each read, use positionHistory", ReplaceWith("positionHistory"))
+	protected val previousPositions: ArrayDeque<VelocityPacket<N>>
+		get() = positionHistory.packets()
+	/**
+	 * a copy of [velocityHistory], in the form it used to be kept in
+	 */
+	@Deprecated("copies the history on each read, use velocityHistory", ReplaceWith("velocityHistory"))
+	protected val previousVelocities: ArrayDeque<VelocityPacket<N>>
+		get() = velocityHistory.packets()
+	private fun reserveHistory() {
+		if (positions.isInitialized()) positionHistory.reserve(historyCapacity)
+		velocities?.reserve(historyCapacity)
+	}
 	private fun update() {
 		currentState = supplier.get()
-		val currentTime = System.nanoTime() / 1e9
-		while (previousPositions.size >= 2 && currentTime - previousPositions[1].deltaTime >= measurementWindow) {
-			previousPositions.removeFirst()
-		}
-		previousPositions.addLast(VelocityPacket(previousPositions.last().end, currentState, previousPositions.last().endTime, currentTime))
-		while (previousVelocities.size >= 2 && currentTime - previousVelocities[1].deltaTime >= measurementWindow) {
-			previousVelocities.removeFirst()
-		}
-		previousVelocities.addLast(VelocityPacket(previousVelocities.last().end, rawVelocity, previousVelocities.last().endTime, currentTime))
+		updateTime = nanoTime / 1e9
+		positionHistory.add(currentState, updateTime, measurementWindow)
+		velocities?.add(rawVelocity, updateTime, measurementWindow)
 	}
 	protected fun get(): N {
 		if (!valid) {
@@ -0,0 +1,149 @@
+package dev.frozenmilk.dairy.core.util.supplier.numeric
+
+import dev.frozenmilk.dairy.core.Feature
+import dev.frozenmilk.dairy.core.FeatureRegistrar
+import dev.frozenmilk.dairy.core.dependency.Dependency
+import dev.frozenmilk.dairy.core.dependency.lazy.Yielding
+import dev.frozenmilk.dairy.core.util.supplier.logical.Conditional
+import dev.frozenmilk.dairy.core.wrapper.Wrapper
+import java.util.function.DoubleSupplier
+
+/**
+ * [EnhancedDoubleSupplier], without boxing
+ *
+ * reads a [DoubleSupplier] and keeps its history in primitive arrays, so updating doesn't allocate
+ *
+ * [deregister]s at the end of the OpMode
+ */
+@Suppress("INAPPLICABLE_JVM_NAME")
+class PrimitiveDoubleSupplier(val supplier: DoubleSupplier) : MotionComponentSupplier<Double>, EnhancedComparableSupplier<Double, Conditional<Double>>, Feature {
+	/**
+	 * if measurements are timestamped with [FeatureRegistrar.loopNanoTime], rather than read from [FeatureRegistrar.nanoTime] as they are taken
+	 *
+	 * defaults to true
+	 */
+	var usesLoopClock = true
+	private val nanoTime get() = if (usesLoopClock) FeatureRegistrar.loopNanoTime else FeatureRegistrar.nanoTime()
+	private var currentState = supplier.asDouble
+	private var offset = 0.0
+	private var updateTime = nanoTime / 1e9
+	private val previousPositions = DoubleHistory(currentState, updateTime)
+	private var velocities: DoubleHistory? = null
+	/**
+	 * only kept once acceleration has been read
+	 */
+	private val previousVelocities
+		get() = velocities ?: DoubleHistory(previousPositions.rawSlope, updateTime).also { velocities = it }
+
+	/**
+	 * non-raw velocity and acceleration is measured across a window of this width, in seconds
+	 *
+	 * defaults to 20 milliseconds
+	 */
+	var measurementWindow = 0.02
+	private var valid = false
+	/**
+	 * allows invalidation of the cache manually
+	 */
+	fun invalidate() {
+		valid = false
+	}
+	private fun update() {
+		currentState = supplier.asDouble
+		updateTime = nanoTime / 1e9
+		previousPositions.add(currentState, updateTime, measurementWindow)
+		velocities?.add(previousPositions.rawSlope, updateTime, measurementWindow)
+	}
+	private fun get(): Double {
+		if (!valid) {
+			update()
+			valid = true
+		}
+		return currentState
+	}
+
+	@get:JvmName("state")
+	@set:JvmName("state")
+	var state: Double
+		get() = get() - offset
+		set(value) {
+			offset = currentState - value
+		}
+	/**
+	 * velocity with a filter applied by looking at velocity over the last [measurementWindow] seconds
+	 */
+	@get:JvmName("velocity")
+	val velocity: Double get() {
+		get()
+		return previousPositions.slope
+	}
+	/**
+	 * [velocity] with no filter applied
+	 */
+	@get:JvmName("rawVelocity")
+	val rawVelocity: Double get() {
+		get()
+		return previousPositions.rawSlope
+	}
+	/**
+	 * acceleration with a filter applied by looking at acceleration over the last [measurementWindow] seconds
+	 */
+	@get:JvmName("acceleration")
+	val acceleration: Double get() {
+		get()
+		return previousVelocities.slope
+	}
+	/**
+	 * [acceleration] with no filter applied
+	 */
+	@get:JvmName("rawAcceleration")
+	val rawAcceleration: Double get() {
+		get()
+		return previousVelocities.rawSlope
+	}
+
+	override fun get(motionComponent: MotionComponents) =
+			when (motionComponent) {
+				MotionComponents.STATE -> state
+				MotionComponents.VELOCITY -> velocity
+				MotionComponents.RAW_VELOCITY -> rawVelocity
+				MotionComponents.ACCELERATION -> acceleration
+				MotionComponents.RAW_ACCELERATION -> rawAcceleration
+			}
+
+	override fun conditionalBindState() = Conditional(this::state)
+	override fun conditionalBindVelocity() = Conditional(this::velocity)
+	override fun conditionalBindVelocityRaw() = Conditional(this::rawVelocity)
+	override fun conditionalBindAcceleration() = Conditional(this::acceleration)
+	override fun conditionalBindAccelerationRaw() = Conditional(this::rawAcceleration)
+
+	//
+	// Impl Feature:
+	//
+	override var dependency: Dependency<*> = Yielding
+
+	init {
+		register()
+	}
+
+	/**
+	 * if [state] is automatically recalculated each loop
+	 *
+	 * should most likely be left true
+	 */
+	var autoCalculates = true
+	private fun autoCalculatePost() {
+		if (autoCalculates) {
+			invalidate()
+			get()
+		}
+	}
+
+	override fun postUserInitHook(opMode: Wrapper) = autoCalculatePost()
+	override fun postUserInitLoopHook(opMode: Wrapper) = autoCalculatePost()
+	override fun postUserStartHook(opMode: Wrapper) = autoCalculatePost()
+	override fun postUserLoopHook(opMode: Wrapper) = autoCalculatePost()
+	override fun cleanup(opMode: Wrapper) {
+		deregister()
+	}
+}
@@ -0,0 +1,65 @@
+package dev.frozenmilk.dairy.core.util.supplier.numeric
+
+/**
+ * the positions and times of a ring buffer of timestamped samples, the samples themselves are kept by a [Storage], in slots parallel to the times
+ *
+ * shared by [VelocityHistory] and [DoubleHistory], which only differ in how they store their samples
+ *
+ * only grows if more samples than it can hold fall within the window
+ */
+internal class TimedRing(capacity: Int, private val storage: Storage) {
+	interface Storage {
+		/**
+		 * replaces the storage with one of [capacity] slots, holding the samples in order from slot 0, found with [slot]
+		 */
+		fun reallocate(capacity: Int)
+
+		/**
+		 * the sample in [slot] has been dropped
+		 */
+		fun clear(slot: Int) {}
+	}
+
+	private var times = DoubleArray(capacity)
+	private var head = 0
+	var size = 0
+		private set
+
+	/**
+	 * the slot of the [i]th oldest sample
+	 */
+	fun slot(i: Int) = (head + i) % times.size
+
+	fun time(i: Int) = times[slot(i)]
+
+	/**
+	 * drops samples that are no longer needed to cover [window] seconds before [time], then makes room for one taken at [time]
+	 *
+	 * @return the slot to store the sample in, the slot of the newest sample, if it was taken at [time], as it is replaced
+	 */
+	fun push(time: Double, window: Double): Int {
+		if (size != 0 && time == time(size - 1)) return slot(size - 1)
+		while (size >= 2 && time - time(1) >= window) {
+			storage.clear(head)
+			head = slot(1)
+			size--
+		}
+		if (size == times.size) reserve(size * 2)
+		val slot = slot(size)
+		times[slot] = time
+		size++
+		return slot
+	}
+
+	/**
+	 * ensures that this can hold [capacity] samples without growing
+	 */
+	fun reserve(capacity: Int) {
+		if (capacity <= times.size) return
+		storage.reallocate(capacity)
+		val times = DoubleArray(capacity)
+		for (i in 0 until size) times[i] = time(i)
+		this.times = times
+		head = 0
+	}
+}
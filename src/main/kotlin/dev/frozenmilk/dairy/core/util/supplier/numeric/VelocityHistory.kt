@@ -0,0 +1,75 @@
+package dev.frozenmilk.dairy.core.util.supplier.numeric
+
+import dev.frozenmilk.util.units.VelocityPacket
+
+/**
+ * a bounded history of timestamped measurements, stored in a ring buffer
+ *
+ * the velocity across the window only depends on its oldest and newest measurements,
+ * so reading it is constant time, no matter how many measurements the window holds
+ *
+ * only grows if more measurements than it can hold fall within the window
+ */
+class VelocityHistory<N>(value: N, time: Double, capacity: Int) {
+	private var values = arrayOfNulls<Any>(capacity.coerceAtLeast(2))
+	private val ring = TimedRing(values.size, object : TimedRing.Storage {
+		override fun reallocate(capacity: Int) {
+			values = Array(capacity) { if (it < ring.size) values[ring.slot(it)] else null }
+		}
+
+		override fun clear(slot: Int) {
+			values[slot] = null
+		}
+	})
+
+	val size
+		get() = ring.size
+
+	init {
+		add(value, time, 0.0)
+	}
+
+	@Suppress("UNCHECKED_CAST")
+	private fun value(i: Int) = values[ring.slot(i)] as N
+	private fun time(i: Int) = ring.time(i)
+
+	/**
+	 * drops measurements that are no longer needed to cover [window] seconds before [time], then adds this one,
+	 * or replaces the newest, if it was taken at [time]
+	 */
+	fun add(value: N, time: Double, window: Double) {
+		values[ring.push(time, window)] = value
+	}
+
+	/**
+	 * ensures that this can hold [capacity] measurements without growing
+	 */
+	fun reserve(capacity: Int) = ring.reserve(capacity)
+
+	/**
+	 * the span from the oldest to the newest measurement
+	 */
+	fun window() = span(0)
+
+	/**
+	 * the span from the second newest to the newest measurement
+	 */
+	fun last() = span(size - 2)
+
+	/**
+	 * a copy of this, as the packets between each measurement and the one before it, led by a packet that spans no time at the oldest
+	 */
+	internal fun packets() = ArrayDeque<VelocityPacket<N>>(size).apply {
+		add(VelocityPacket(value(0), value(0), time(0), time(0)))
+		for (i in 1 until size) add(VelocityPacket(value(i - 1), value(i), time(i - 1), time(i)))
+	}
+
+	/**
+	 * measurements at the same time replace each other, so this only spans no time if there is just one measurement,
+	 * in which case it spans a nominal second with no change, so its velocity is zero, rather than 0 / 0
+	 */
+	private fun span(from: Int): VelocityPacket<N> {
+		if (from < 0) return VelocityPacket(value(0), value(0), time(0) - 1.0, time(0))
+		return VelocityPacket(value(from), value(size - 1), time(from), time(size - 1))
+	}
+}
@@ -0,0 +1,61 @@
+package dev.frozenmilk.dairy.core.wrapper
+
+import dev.frozenmilk.sinister.getAllAnnotations
+import java.util.concurrent.ConcurrentHashMap
+
+/**
+ * all the annotations on an OpMode class and its supertypes, as found by [getAllAnnotations]
+ *
+ * also indexed by annotation class, so that [dev.frozenmilk.dairy.core.dependency.Dependency]s can look up annotations without scanning them
+ *
+ * computed once per OpMode class, see [of]
+ */
+class InheritedAnnotations private constructor(private val annotations: List<Annotation>) : AbstractList<Annotation>() {
+	/**
+	 * positions in [annotations], by annotation class
+	 */
+	private val positions = HashMap<Class<out Annotation>, MutableList<Int>>().also { positions ->
+		annotations.forEachIndexed { position, annotation ->
+			positions.getOrPut(annotation.annotationClass.java) { mutableListOf() }.add(position)
+		}
+	}
+
+	override val size
+		get() = annotations.size
+
+	override fun get(index: Int) = annotations[index]
+
+	/**
+	 * all instances of [cls], in order
+	 */
+	fun <T : Annotation> instancesOf(cls: Class<T>): List<T> = positions[cls]?.map { cls.cast(annotations[it]) } ?: emptyList()
+
+	/**
+	 * all instances of any of [classes], in order
+	 */
+	fun instancesOf(classes: Collection<Class<out Annotation>>): List<Annotation> = classes
+		.flatMap { positions[it] ?: emptyList() }
+		.sorted()
+		.map { annotations[it] }
+
+	/**
+	 * if there are any instances of [cls]
+	 */
+	operator fun contains(cls: Class<out Annotation>) = positions.containsKey(cls)
+
+	companion object {
+		private val cache = ConcurrentHashMap<Class<*>, InheritedAnnotations>()
+
+		@JvmStatic
+		fun of(cls: Class<*>): InheritedAnnotations = cache.getOrPut(cls) { InheritedAnnotations(cls.getAllAnnotations()) }
+	}
+}
+
+/**
+ * the annotations in this that are instances of any of [classes], in order
+ *
+ * uses the index if this is [InheritedAnnotations], otherwise checks each annotation
+ */
+internal fun List<Annotation>.instancesOf(classes: Collection<Class<out Annotation>>): List<Annotation> =
+	if (this is InheritedAnnotations) instancesOf(classes)
+	else filter { annotation -> classes.any { it.isInstance(annotation) } }
@@ -1,7 +1,6 @@
 package dev.frozenmilk.dairy.core.wrapper
 
 import com.qualcomm.robotcore.eventloop.opmode.LinearOpMode
-import dev.frozenmilk.sinister.getAllAnnotations
 import org.firstinspires.ftc.robotcore.internal.opmode.OpModeMeta
 
 class LinearOpModeWrapper internal constructor(override val opMode: LinearOpMode, override val meta: OpModeMeta) : Wrapper {
@@ -10,5 +9,7 @@ class LinearOpModeWrapper internal constructor(override val opMode: LinearOpMode
 	override val state: Wrapper.OpModeState
 		get() { return _state }
 	override val name: String = meta.displayName
-	override val inheritedAnnotations = opMode.javaClass.getAllAnnotations()
+	override val annotationIndex = InheritedAnnotations.of(opMode.javaClass)
+	override val inheritedAnnotations: List<Annotation>
+		get() = annotationIndex
 }
\ No newline at end of file
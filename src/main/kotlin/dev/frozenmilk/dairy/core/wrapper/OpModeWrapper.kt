@@ -2,7 +2,6 @@ package dev.frozenmilk.dairy.core.wrapper
 
 import com.qualcomm.robotcore.eventloop.opmode.OpMode
 import dev.frozenmilk.dairy.core.FeatureRegistrar
-import dev.frozenmilk.sinister.getAllAnnotations
 import org.firstinspires.ftc.robotcore.internal.opmode.OpModeMeta
 import org.firstinspires.ftc.robotcore.internal.opmode.OpModeMeta.Flavor
 
@@ -14,7 +13,9 @@ class OpModeWrapper internal constructor(override val opMode: OpMode, override v
 		get() { return _state }
 
 	override val name: String = meta.displayName
-	override val inheritedAnnotations = opMode.javaClass.getAllAnnotations()
+	override val annotationIndex = InheritedAnnotations.of(opMode.javaClass)
+	override val inheritedAnnotations: List<Annotation>
+		get() = annotationIndex
 
 	/**
 	 * moves things around, so that the irritating little fields that exist on each OpMode get remapped through this correctly
@@ -1,16 +1,26 @@
 package dev.frozenmilk.dairy.core.wrapper
 
 import com.qualcomm.robotcore.eventloop.opmode.OpMode
+import dev.frozenmilk.dairy.core.Feature
 import dev.frozenmilk.dairy.core.FeatureRegistrar
 import org.firstinspires.ftc.robotcore.internal.opmode.OpModeMeta
 
 sealed interface Wrapper {
 	/**
 	 * only valid for the duration of the runtime of this Wrapper as this is sugar access to the [FeatureRegistrar.activeFeatures] of the current OpMode
+	 *
+	 * shares [FeatureRegistrar]'s immutable snapshot, rather than making a copy
 	 */
-	val activeFeatures
+	val activeFeatures: List<Feature>
 		get() = FeatureRegistrar.activeFeatures
+	/**
+	 * cached per OpMode class, the same instance as [annotationIndex]
+	 */
 	val inheritedAnnotations: List<Annotation>
+	/**
+	 * [inheritedAnnotations], indexed by annotation class
+	 */
+	val annotationIndex: InheritedAnnotations
 	val opMode: OpMode
 	val meta: OpModeMeta
 	val opModeType: OpModeMeta.Flavor
@@ -0,0 +1,179 @@
+package dev.frozenmilk.dairy.core.test.conditional
+
+import dev.frozenmilk.dairy.core.FeatureRegistrar
+import dev.frozenmilk.dairy.core.util.TimeSource
+import dev.frozenmilk.dairy.core.util.VirtualTimeSource
+import dev.frozenmilk.dairy.core.util.supplier.logical.BooleanBank
+import org.junit.After
+import org.junit.Assert
+import org.junit.Before
+import org.junit.Test
+
+class BooleanBankTest {
+	private var a = false
+	private var b = false
+	private val bank = BooleanBank()
+	private val inputA = bank.add { a }
+	private val inputB = bank.add { b }
+
+	private val time = VirtualTimeSource()
+
+	@Before
+	fun useVirtualTime() {
+		FeatureRegistrar.timeSource = time
+		bank.usesLoopClock = false
+	}
+
+	@After
+	fun useSystemTime() {
+		FeatureRegistrar.timeSource = TimeSource.SYSTEM
+	}
+
+	private fun next() {
+		bank.invalidate()
+		bank.states
+	}
+
+	private fun next(seconds: Double) {
+		time.advanceSeconds(seconds)
+		next()
+	}
+
+	@Test
+	fun edgesAreTrackedPerInput() {
+		a = true
+		next()
+		Assert.assertTrue(inputA.onTrue)
+		Assert.assertFalse(inputB.onTrue)
+		Assert.assertEquals(0b01L, bank.risingEdges)
+		a = false
+		b = true
+		next()
+		Assert.assertTrue(inputA.onFalse)
+		Assert.assertTrue(inputB.onTrue)
+		Assert.assertEquals(0b10L, bank.states)
+		next()
+		Assert.assertFalse(inputA.onFalse)
+		Assert.assertFalse(inputB.onTrue)
+		Assert.assertTrue(inputB.state)
+	}
+
+	@Test
+	fun togglesFlipOnEdges() {
+		Assert.assertFalse(inputA.toggleTrue)
+		a = true
+		next()
+		Assert.assertTrue(inputA.toggleTrue)
+		Assert.assertFalse(inputA.toggleFalse)
+		a = false
+		next()
+		Assert.assertTrue(inputA.toggleTrue)
+		Assert.assertTrue(inputA.toggleFalse)
+		a = true
+		next()
+		Assert.assertFalse(inputA.toggleTrue)
+	}
+
+	@Test
+	fun combinatorsAddToTheSameBank() {
+		val both = inputA and inputB
+		val notA = !inputA
+		Assert.assertSame(bank, both.bank)
+		Assert.assertEquals(4, bank.size)
+		a = true
+		b = true
+		next()
+		Assert.assertTrue(both.onTrue)
+		Assert.assertTrue(notA.onFalse)
+		b = false
+		next()
+		Assert.assertTrue(both.onFalse)
+		Assert.assertFalse(notA.state)
+	}
+
+	@Test(expected = IllegalStateException::class)
+	fun holdsAtMost64() {
+		repeat(BooleanBank.CAPACITY - bank.size + 1) { bank.add { false } }
+	}
+
+	@Test
+	fun debounceHoldsBothEdges() {
+		val debounced = inputA.debounce(0.1)
+		next()
+		a = true
+		next(0.05)
+		Assert.assertTrue(inputA.state)
+		Assert.assertFalse(debounced.state)
+		next(0.05)
+		Assert.assertTrue(debounced.onTrue)
+
+		a = false
+		next(0.05)
+		Assert.assertTrue(debounced.state)
+		// bouncing back restarts the falling debounce
+		a = true
+		next(0.05)
+		a = false
+		next(0.05)
+		Assert.assertTrue(debounced.state)
+		next(0.05)
+		Assert.assertTrue(debounced.onFalse)
+	}
+
+	@Test
+	fun debouncingOneEdgeKeepsTheOther() {
+		val slow = inputA.debounce(0.1, 0.2)
+		val fastRise = slow.debounceRisingEdge(0.0)
+		val fastFall = slow.debounceFallingEdge(0.0)
+		next()
+
+		a = true
+		next(0.05)
+		Assert.assertFalse(slow.state)
+		Assert.assertTrue(fastRise.onTrue)
+		Assert.assertFalse(fastFall.state)
+		next(0.05)
+		Assert.assertTrue(slow.onTrue)
+		Assert.assertTrue(fastRise.state)
+		Assert.assertTrue(fastFall.onTrue)
+
+		// the debounce is replaced, rather than added to, so fastRise falls with slow, not 0.2 seconds after it
+		a = false
+		next(0.05)
+		Assert.assertTrue(slow.state)
+		Assert.assertTrue(fastRise.state)
+		Assert.assertTrue(fastFall.onFalse)
+		next(0.05)
+		next(0.05)
+		Assert.assertTrue(slow.state)
+		Assert.assertTrue(fastRise.state)
+		next(0.05)
+		Assert.assertTrue(slow.onFalse)
+		Assert.assertTrue(fastRise.onFalse)
+	}
+
+	@Test
+	fun combinatorsReadDebouncedInputs() {
+		val debounced = inputA.debounce(0.1)
+		val both = debounced and inputB
+		val notDebounced = !debounced
+		next()
+		Assert.assertTrue(notDebounced.state)
+
+		a = true
+		b = true
+		next(0.05)
+		Assert.assertFalse(both.state)
+		Assert.assertTrue(notDebounced.state)
+		// settled in the same update as the debounced input it reads
+		next(0.05)
+		Assert.assertTrue(debounced.onTrue)
+		Assert.assertTrue(both.onTrue)
+		Assert.assertTrue(notDebounced.onFalse)
+
+		b = false
+		next(0.05)
+		Assert.assertTrue(debounced.state)
+		Assert.assertTrue(both.onFalse)
+	}
+}
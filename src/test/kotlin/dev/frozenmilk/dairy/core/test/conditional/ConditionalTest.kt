@@ -196,4 +196,45 @@ class ConditionalTest {
 			.bind()
 		Assert.assertTrue(binding.state)
 	}
+	@Test
+	fun overlapping() {
+		val binding = enhancedDoubleSupplier.conditionalBindState()
+			.greaterThan(-10.0)
+			.lessThan(5.0)
+			.greaterThan(-5.0)
+			.lessThan(10.0)
+			.bind()
+		testState = 7.0
+		binding.invalidate()
+		Assert.assertTrue(binding.state)
+		testState = 10.0
+		binding.invalidate()
+		Assert.assertFalse(binding.state)
+	}
+	@Test
+	fun gap() {
+		val binding = enhancedDoubleSupplier.conditionalBindState()
+			.greaterThanEqualTo(10.0)
+			.lessThan(20.0)
+			.greaterThan(30.0)
+			.bind()
+		listOf(0.0 to false, 10.0 to true, 20.0 to false, 25.0 to false, 30.0 to false, 31.0 to true).forEach { (state, expected) ->
+			testState = state
+			binding.invalidate()
+			Assert.assertEquals("$state", expected, binding.state)
+		}
+	}
+	@Test
+	fun touching() {
+		val binding = enhancedDoubleSupplier.conditionalBindState()
+			.greaterThan(-10.0)
+			.lessThan(0.0)
+			.greaterThan(0.0)
+			.lessThan(10.0)
+			.bind()
+		Assert.assertFalse(binding.state)
+		testState = 5.0
+		binding.invalidate()
+		Assert.assertTrue(binding.state)
+	}
 }
@@ -0,0 +1,46 @@
+package dev.frozenmilk.dairy.core.test.conditional
+
+import dev.frozenmilk.dairy.core.util.supplier.logical.DomainClosureBuilder
+import dev.frozenmilk.dairy.core.util.supplier.logical.DomainSet
+import org.junit.Assert
+import org.junit.Test
+
+class DomainSetTest {
+	private fun <T: Comparable<T>> builder() = DomainClosureBuilder<T>()
+
+	@Test
+	fun mergesOverlappingAndTouchingDomains() {
+		val set = DomainSet.of(listOf(
+			builder<Int>().greaterThanEqualTo(0).lessThan(5),
+			builder<Int>().greaterThanEqualTo(5).lessThanEqualTo(8),
+			builder<Int>().greaterThan(3).lessThan(6),
+			builder<Int>().greaterThan(20),
+		))
+		(0..8).forEach { Assert.assertTrue("$it", set.contains(it)) }
+		(9..20).forEach { Assert.assertFalse("$it", set.contains(it)) }
+		Assert.assertTrue(set.contains(21))
+		Assert.assertFalse(set.contains(-1))
+		// not all doubles
+		Assert.assertNull(set.doubles())
+	}
+
+	@Test
+	fun doublesMatchTheGenericCheck() {
+		val set = DomainSet.of(listOf(
+			builder<Double>().lessThan(0.0),
+			builder<Double>().greaterThanEqualTo(1.0).lessThanEqualTo(2.0),
+			builder<Double>().greaterThan(3.0),
+		))
+		val doubles = set.doubles()!!
+		listOf(Double.NEGATIVE_INFINITY, -1.0, -0.0, 0.0, 0.5, 1.0, 1.5, 2.0, 2.5, 3.0, 4.0, Double.POSITIVE_INFINITY, Double.NaN).forEach {
+			Assert.assertEquals("$it", set.contains(it), doubles.contains(it))
+		}
+	}
+
+	@Test
+	fun emptyDomainsContainNothing() {
+		val set = DomainSet.of(listOf(builder<Double>().greaterThan(10.0).lessThan(-10.0)))
+		Assert.assertFalse(set.contains(0.0))
+		Assert.assertNull(set.doubles())
+	}
+}
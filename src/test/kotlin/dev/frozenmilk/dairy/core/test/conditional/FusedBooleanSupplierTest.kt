@@ -0,0 +1,179 @@
+package dev.frozenmilk.dairy.core.test.conditional
+
+import dev.frozenmilk.dairy.core.FeatureRegistrar
+import dev.frozenmilk.dairy.core.util.supplier.logical.FusedBooleanSupplier
+import dev.frozenmilk.dairy.testrt.OpModeTestRunner
+import dev.frozenmilk.dairy.testrt.TestOpMode
+import dev.frozenmilk.dairy.testrt.VirtualTime
+import org.junit.Assert
+import org.junit.runner.RunWith
+
+@RunWith(OpModeTestRunner::class)
+class FusedBooleanSupplierTest : TestOpMode() {
+	private var a = false
+	private var b = true
+	private var samples = 0
+	private val leaf = FusedBooleanSupplier {
+		samples++
+		a
+	}
+	private val interior = leaf and { b }
+	// shares leaf with interior
+	private val root = interior or !leaf
+
+	override fun init() {
+		Assert.assertTrue(root.state)
+		Assert.assertEquals(1, samples)
+	}
+
+	override fun loop() {
+		Assert.assertTrue(FeatureRegistrar.isFeatureActive(root))
+		Assert.assertFalse(FeatureRegistrar.isFeatureActive(interior))
+		Assert.assertFalse(FeatureRegistrar.isFeatureActive(leaf))
+		// once in each of init, init loop and start
+		Assert.assertEquals(3, samples)
+		Assert.assertTrue(root.state)
+		Assert.assertFalse(root.onTrue)
+	}
+}
+
+@RunWith(OpModeTestRunner::class)
+class FusedBooleanSupplierInvalidateTest : TestOpMode() {
+	private var a = false
+	private val leaf = FusedBooleanSupplier { a }
+	private val root = leaf and { true }
+	// shares leaf with root
+	private val other = leaf or { false }
+
+	override fun init() {
+		Assert.assertFalse(root.state)
+		Assert.assertFalse(other.state)
+	}
+
+	override fun loop() {
+		// samples the tree in this phase
+		root.invalidate()
+		Assert.assertFalse(root.state)
+
+		a = true
+		Assert.assertFalse(root.state)
+		root.invalidate()
+		Assert.assertTrue(root.state)
+		Assert.assertTrue(root.onTrue)
+
+		// not updated until it is invalidated, but then it sees the change too
+		Assert.assertFalse(other.state)
+		other.invalidate()
+		Assert.assertTrue(other.state)
+	}
+}
+
+@RunWith(OpModeTestRunner::class)
+class FusedBooleanSupplierScopedInvalidateTest : TestOpMode() {
+	private var samples = 0
+	private val shared = FusedBooleanSupplier {
+		samples++
+		true
+	}
+	private val first = shared and { true }
+	private val second = shared or { false }
+	// doesn't share anything with the others
+	private val unrelated = FusedBooleanSupplier { true } and { true }
+	private var loops = 0
+
+	override fun init() {
+		first.state
+		second.state
+		unrelated.state
+		advanceToStop = false
+	}
+
+	override fun loop() {
+		loops++
+		// first samples shared again, and then the post loop updates of first and second use that sample,
+		// invalidating unrelated in between doesn't make them sample it again
+		if (loops > 1) Assert.assertEquals(1, samples)
+		samples = 0
+		first.invalidate()
+		Assert.assertTrue(first.state)
+		Assert.assertEquals(1, samples)
+		unrelated.invalidate()
+		Assert.assertTrue(unrelated.state)
+		if (loops == 3) advanceToStop = true
+	}
+}
+
+/**
+ * inputs are set in a loop, and sampled at the end of it, so their effects are checked in the next loop
+ */
+@RunWith(OpModeTestRunner::class)
+class FusedBooleanSupplierEdgeTest : TestOpMode() {
+	private val pattern = listOf(true, true, false, true, false, false, true, false)
+	private var input = false
+	private val root = FusedBooleanSupplier { input } and { true }
+	private var loops = 0
+	private var toggleTrue = false
+	private var toggleFalse = false
+
+	override fun init() {
+		Assert.assertFalse(root.state)
+		advanceToStop = false
+	}
+
+	override fun loop() {
+		loops++
+		if (loops > 1) {
+			val now = pattern[loops - 2]
+			val before = pattern.getOrElse(loops - 3) { false }
+			if (now && !before) toggleTrue = !toggleTrue
+			if (!now && before) toggleFalse = !toggleFalse
+			Assert.assertEquals(now, root.state)
+			Assert.assertEquals(now && !before, root.onTrue)
+			Assert.assertEquals(!now && before, root.onFalse)
+			Assert.assertEquals(toggleTrue, root.toggleTrue)
+			Assert.assertEquals(toggleFalse, root.toggleFalse)
+		}
+		if (loops > pattern.size) {
+			advanceToStop = true
+			return
+		}
+		input = pattern[loops - 1]
+	}
+}
+
+/**
+ * with 20 milliseconds between phases, a 50 millisecond debounce needs the input to hold for three updates
+ *
+ * inputs are set in a loop, and sampled at the end of it, so their effects are checked in the next loop
+ */
+@RunWith(OpModeTestRunner::class)
+@VirtualTime(period = 0.02)
+class FusedBooleanSupplierDebounceTest : TestOpMode() {
+	private var a = false
+	private val root = (FusedBooleanSupplier { a } and { true }).debounce(0.05)
+	private val inverse = !root
+	private var loops = 0
+
+	override fun init() {
+		Assert.assertFalse(root.state)
+		Assert.assertTrue(inverse.state)
+		advanceToStop = false
+	}
+
+	override fun loop() {
+		loops++
+		val expected = loops in 6..13
+		Assert.assertEquals("loop $loops", expected, root.state)
+		Assert.assertEquals("loop $loops", loops == 6, root.onTrue)
+		Assert.assertEquals("loop $loops", loops == 14, root.onFalse)
+
+		// keeps the debounce, so mirrors root
+		Assert.assertEquals("loop $loops", !expected, inverse.state)
+		Assert.assertEquals("loop $loops", root.onFalse, inverse.onTrue)
+		Assert.assertEquals("loop $loops", root.onTrue, inverse.onFalse)
+
+		// true from loop 3 to 10, and then, too briefly to get through, in loop 15
+		a = loops in 3..10 || loops == 15
+		if (loops == 20) advanceToStop = true
+	}
+}
@@ -0,0 +1,54 @@
+package dev.frozenmilk.dairy.core.test.configurable
+
+import dev.frozenmilk.dairy.core.util.configurable.Configurable
+import dev.frozenmilk.dairy.core.util.configurable.Configuration
+import dev.frozenmilk.dairy.core.util.configurable.ConfigurationGraph
+import org.junit.Assert
+import org.junit.Test
+
+class ConfigurationGraphTest {
+	private object Target : Configurable
+
+	private class Node(val name: String) : Configuration<Target> {
+		override val configurableClass = Target::class.java
+		override var prioritisedOver: List<Configuration<in Target>> = emptyList()
+		override fun configure(configurable: Target) {}
+		override fun toString() = name
+	}
+
+	@Test
+	fun chain() {
+		val nodes = List(1000) { Node("$it") }
+		nodes.zipWithNext { l, r -> l.prioritisedOver = listOf(r) }
+		val graph = ConfigurationGraph(nodes)
+		Assert.assertTrue(graph.cyclic.isEmpty())
+		Assert.assertTrue(graph.prioritises(nodes.first(), nodes.last()))
+		Assert.assertFalse(graph.prioritises(nodes.last(), nodes.first()))
+	}
+
+	@Test
+	fun diamond() {
+		// exponential without memoisation
+		val layers = List(40) { listOf(Node("$it a"), Node("$it b")) }
+		layers.zipWithNext { upper, lower -> upper.forEach { it.prioritisedOver = lower } }
+		val graph = ConfigurationGraph(layers.flatten())
+		Assert.assertTrue(graph.prioritises(layers.first()[0], layers.last()[1]))
+		Assert.assertFalse(graph.prioritises(layers.first()[0], layers.first()[1]))
+	}
+
+	@Test
+	fun cycles() {
+		val a = Node("a")
+		val b = Node("b")
+		val c = Node("c")
+		val d = Node("d")
+		a.prioritisedOver = listOf(b)
+		b.prioritisedOver = listOf(a)
+		c.prioritisedOver = listOf(a)
+		d.prioritisedOver = listOf(d)
+		val graph = ConfigurationGraph(listOf(a, b, c, d))
+		Assert.assertEquals(setOf(a, b, d), graph.cyclic)
+		Assert.assertTrue(graph.prioritises(c, b))
+		Assert.assertTrue(graph.prioritises(a, a))
+	}
+}
@@ -0,0 +1,85 @@
+package dev.frozenmilk.dairy.core.test.configurable
+
+import dev.frozenmilk.dairy.core.util.configurable.Configurable
+import dev.frozenmilk.dairy.core.util.configurable.Configuration
+import dev.frozenmilk.dairy.core.util.configurable.ConfigurationPlanSnapshot
+import org.junit.Assert
+import org.junit.Test
+import java.io.File
+
+class ConfigurationPlanSnapshotTest {
+	private object Target : Configurable
+
+	private object First : Configuration<Target> {
+		override val configurableClass = Target::class.java
+		override val prioritisedOver: List<Configuration<in Target>> = emptyList()
+		override fun configure(configurable: Target) {}
+	}
+
+	private object Second : Configuration<Target> {
+		override val configurableClass = Target::class.java
+		override val prioritisedOver: List<Configuration<in Target>> = emptyList()
+		override fun configure(configurable: Target) {}
+	}
+
+	private object Prioritised : Configuration<Target> {
+		override val configurableClass = Target::class.java
+		override val prioritisedOver: List<Configuration<in Target>> = listOf(First)
+		override fun configure(configurable: Target) {}
+	}
+
+	private class Adjustable(override val prioritisedOver: List<Configuration<in Target>>) : Configuration<Target> {
+		override val configurableClass = Target::class.java
+		override fun configure(configurable: Target) {}
+	}
+
+	private val file = File.createTempFile("configuration-plan", null).also { it.deleteOnExit() }
+	private val plan = mapOf<Class<*>, List<Configuration<*>>>(
+		Target::class.java to listOf(Second, First),
+		String::class.java to emptyList(),
+	)
+
+	@Test
+	fun roundTrip() {
+		ConfigurationPlanSnapshot(file, "build").save(listOf(First, Second), plan)
+		Assert.assertEquals(plan, ConfigurationPlanSnapshot(file, "build").load(listOf(First, Second)))
+	}
+
+	@Test
+	fun staleBuild() {
+		ConfigurationPlanSnapshot(file, "build").save(listOf(First, Second), plan)
+		Assert.assertNull(ConfigurationPlanSnapshot(file, "other build").load(listOf(First, Second)))
+	}
+
+	@Test
+	fun missingConfiguration() {
+		ConfigurationPlanSnapshot(file, "build").save(listOf(First, Second), plan)
+		Assert.assertNull(ConfigurationPlanSnapshot(file, "build").load(listOf(First)))
+	}
+
+	@Test
+	fun newConfiguration() {
+		// e.g. added in OnBotJava, which doesn't change the build hash
+		ConfigurationPlanSnapshot(file, "build").save(listOf(First, Second), plan)
+		Assert.assertNull(ConfigurationPlanSnapshot(file, "build").load(listOf(First, Second, Prioritised)))
+	}
+
+	@Test
+	fun changedPriorities() {
+		ConfigurationPlanSnapshot(file, "build").save(listOf(First, Second, Adjustable(emptyList())), plan)
+		Assert.assertEquals(plan, ConfigurationPlanSnapshot(file, "build").load(listOf(First, Second, Adjustable(emptyList()))))
+		Assert.assertNull(ConfigurationPlanSnapshot(file, "build").load(listOf(First, Second, Adjustable(listOf(First)))))
+	}
+
+	@Test
+	fun orderOfConfigurationsDoesntMatter() {
+		ConfigurationPlanSnapshot(file, "build").save(listOf(First, Second), plan)
+		Assert.assertEquals(plan, ConfigurationPlanSnapshot(file, "build").load(listOf(Second, First)))
+	}
+
+	@Test
+	fun missingFile() {
+		file.delete()
+		Assert.assertNull(ConfigurationPlanSnapshot(file, "build").load(listOf(First, Second)))
+	}
+}
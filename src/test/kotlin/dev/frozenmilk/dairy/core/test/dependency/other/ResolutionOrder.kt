@@ -0,0 +1,69 @@
+package dev.frozenmilk.dairy.core.test.dependency.other
+
+import dev.frozenmilk.dairy.core.Feature
+import dev.frozenmilk.dairy.core.FeatureRegistrar
+import dev.frozenmilk.dairy.core.dependency.Dependency
+import dev.frozenmilk.dairy.core.dependency.feature.SingleFeature
+import dev.frozenmilk.dairy.core.dependency.lazy.Yielding
+import dev.frozenmilk.dairy.testrt.OpModeTestRunner
+import dev.frozenmilk.dairy.testrt.TestOpMode
+import org.junit.Assert
+import org.junit.runner.RunWith
+
+@RunWith(OpModeTestRunner::class)
+class ResolutionOrderTest1 : TestOpMode() {
+	private val features = run {
+		val dependent = OrderFeature()
+		val dependency = OrderFeature()
+		dependent.dependency = SingleFeature(dependency)
+		val independent = OrderFeature()
+		listOf(dependent, dependency, independent)
+	}
+	override fun init() {
+		features.forEach {
+			if (!it.active) Assert.fail("$it should be attached")
+		}
+		val activeFeatures = FeatureRegistrar.activeFeatures
+		// resolved in passes, so the dependent is activated after everything resolved in the first pass
+		Assert.assertEquals(
+			true,
+			activeFeatures.indexOf(features[1]) < activeFeatures.indexOf(features[2])
+		)
+		Assert.assertEquals(
+			true,
+			activeFeatures.indexOf(features[2]) < activeFeatures.indexOf(features[0])
+		)
+	}
+}
+
+@RunWith(OpModeTestRunner::class)
+class ResolutionOrderTest2 : TestOpMode() {
+	private val features = run {
+		val dependent = OrderFeature()
+		val yielding = OrderFeature()
+		yielding.dependency = Yielding
+		dependent.dependency = SingleFeature(yielding)
+		listOf(dependent, yielding, OrderFeature())
+	}
+	override fun init() {
+		features.forEach {
+			if (!it.active) Assert.fail("$it should be attached")
+		}
+		val activeFeatures = FeatureRegistrar.activeFeatures
+		Assert.assertEquals(
+			true,
+			activeFeatures.indexOf(features[2]) < activeFeatures.indexOf(features[1])
+		)
+		Assert.assertEquals(
+			true,
+			activeFeatures.indexOf(features[1]) < activeFeatures.indexOf(features[0])
+		)
+	}
+}
+
+private class OrderFeature : Feature {
+	init {
+		register()
+	}
+	override var dependency: Dependency<*> = Dependency { _, _, _ -> }
+}
@@ -0,0 +1,187 @@
+package dev.frozenmilk.dairy.core.test.dependency.other
+
+import dev.frozenmilk.dairy.core.Feature
+import dev.frozenmilk.dairy.core.FeatureRegistrar
+import dev.frozenmilk.dairy.core.dependency.Dependency
+import dev.frozenmilk.dairy.core.dependency.resolution.DependencyResolutionException
+import dev.frozenmilk.dairy.core.dependency.resolution.ResolutionPlanCache
+import dev.frozenmilk.dairy.core.wrapper.Wrapper
+import dev.frozenmilk.dairy.testrt.OpModeTestRunner
+import dev.frozenmilk.dairy.testrt.TestOpMode
+import org.junit.Assert
+import org.junit.runner.RunWith
+
+// each test resolves the same features against the same OpMode more than once, as if the OpMode were run again
+
+// a miss searches in passes, so the dependent is tried before what it depends on,
+// a hit replays the recorded order, so each feature is resolved once
+private val missLog = listOf("resolve dependent", "resolve dependency", "accept dependency", "resolve dependent", "accept dependent")
+private val hitLog = listOf("resolve dependency", "accept dependency", "resolve dependent", "accept dependent")
+
+@RunWith(OpModeTestRunner::class)
+class ResolutionPlanCacheMissTest : TestOpMode() {
+	override fun init() {
+		val log = mutableListOf<String>()
+		val features = dependentPair(log)
+
+		resolve(features)
+		Assert.assertEquals(missLog, log)
+
+		log.clear()
+		val resolved = linkedSetOf<Feature>()
+		Assert.assertEquals(emptyMap<Feature, Throwable?>(), resolve(features, resolved))
+		Assert.assertEquals(hitLog, log)
+		Assert.assertEquals(listOf(features[1], features[0]), resolved.toList())
+	}
+}
+
+@RunWith(OpModeTestRunner::class)
+class ResolutionPlanCacheHitFailureTest : TestOpMode() {
+	override fun init() {
+		val log = mutableListOf<String>()
+		val failing = PlanFeature(log, "failing")
+		failing.planDependency.succeeds = false
+		val features = dependentPair(log) + failing
+
+		resolve(features)
+		log.clear()
+
+		val resolved = linkedSetOf<Feature>()
+		val failures = resolve(features, resolved)
+		Assert.assertEquals(hitLog + listOf("resolve failing", "fail failing"), log)
+		Assert.assertEquals(setOf(failing), failures.keys)
+		Assert.assertTrue(failures[failing] is DependencyResolutionException)
+		Assert.assertEquals(listOf(features[1], features[0]), resolved.toList())
+	}
+}
+
+@RunWith(OpModeTestRunner::class)
+class ResolutionPlanCachePartialReplayTest : TestOpMode() {
+	override fun init() {
+		val log = mutableListOf<String>()
+		val other = PlanFeature(log, "other")
+		val features = dependentPair(log) + other
+
+		// recorded as dependency, other, dependent
+		resolve(features)
+		log.clear()
+
+		other.planDependency.succeeds = false
+		val resolved = linkedSetOf<Feature>()
+		val failures = resolve(features, resolved)
+		Assert.assertEquals(
+			listOf(
+				// replayed, until other fails
+				"resolve dependency", "accept dependency", "resolve other",
+				// resolved as normal from there, dependency isn't accepted again
+				"resolve dependent", "accept dependent", "resolve other", "resolve other", "fail other",
+			),
+			log
+		)
+		Assert.assertEquals(setOf(other), failures.keys)
+		Assert.assertEquals(listOf(features[1], features[0]), resolved.toList())
+	}
+}
+
+@RunWith(OpModeTestRunner::class)
+class ResolutionPlanCacheFailureRecoveredTest : TestOpMode() {
+	override fun init() {
+		val log = mutableListOf<String>()
+		val independent = PlanFeature(log, "independent")
+		val flaky = PlanFeature(log, "flaky")
+		flaky.planDependency.succeeds = false
+		val features = listOf(independent, flaky)
+
+		resolve(features)
+		Assert.assertEquals("fail flaky", log.last())
+		log.clear()
+
+		// failures aren't replayed from the plan, they are resolved again, and as this one now succeeds, it is resolved as normal
+		flaky.planDependency.succeeds = true
+		val resolved = linkedSetOf<Feature>()
+		Assert.assertEquals(emptyMap<Feature, Throwable?>(), resolve(features, resolved))
+		Assert.assertEquals(listOf("resolve independent", "accept independent", "resolve flaky", "resolve flaky", "accept flaky"), log)
+		Assert.assertEquals(features, resolved.toList())
+	}
+}
+
+@RunWith(OpModeTestRunner::class)
+class ResolutionPlanCacheOptOutTest : TestOpMode() {
+	override fun init() {
+		val log = mutableListOf<String>()
+		val dependency = PlanFeature(log, "dependency")
+		val dependent = PlanFeature(log, "dependent", requires = dependency, cacheable = false)
+		val features = listOf(dependent, dependency)
+
+		resolve(features)
+		Assert.assertEquals(missLog, log)
+
+		log.clear()
+		resolve(features)
+		Assert.assertEquals(missLog, log)
+	}
+}
+
+@RunWith(OpModeTestRunner::class)
+class ResolutionPlanCacheEvictionTest : TestOpMode() {
+	override fun init() {
+		val log = mutableListOf<String>()
+		val features = dependentPair(log)
+		val fillers = mutableListOf<String>()
+		fun fill(n: Int) = repeat(n) { resolve(listOf(PlanFeature(fillers, "filler"))) }
+		fun resolveFeatures(): List<String> {
+			log.clear()
+			resolve(features)
+			return log.toList()
+		}
+
+		Assert.assertEquals(missLog, resolveFeatures())
+
+		// using a plan makes it the most recently used, so the eldest filler is evicted rather than it
+		fill(ResolutionPlanCache.CAPACITY - 1)
+		Assert.assertEquals(hitLog, resolveFeatures())
+		fill(1)
+		Assert.assertEquals(hitLog, resolveFeatures())
+
+		fill(ResolutionPlanCache.CAPACITY)
+		Assert.assertEquals(missLog, resolveFeatures())
+	}
+}
+
+private fun resolve(features: List<Feature>, resolved: MutableSet<Feature> = linkedSetOf()) =
+	ResolutionPlanCache.resolve(FeatureRegistrar.activeOpModeWrapper, features.toMutableSet(), resolved)
+
+/**
+ * a dependent, and the feature it depends on, in that order
+ */
+private fun dependentPair(log: MutableList<String>): List<PlanFeature> {
+	val dependency = PlanFeature(log, "dependency")
+	return listOf(PlanFeature(log, "dependent", requires = dependency), dependency)
+}
+
+/**
+ * not registered, resolved directly by the tests
+ */
+private class PlanFeature(log: MutableList<String>, name: String, requires: Feature? = null, cacheable: Boolean = true) : Feature {
+	val planDependency = PlanDependency(log, name, requires, cacheable)
+	override var dependency: Dependency<*> = planDependency
+	override fun toString() = planDependency.name
+}
+
+/**
+ * logs each call, and fails if it has been told to, or if the feature it [requires] hasn't been resolved
+ */
+private class PlanDependency(private val log: MutableList<String>, val name: String, private val requires: Feature?, override val cacheable: Boolean) : Dependency<Unit> {
+	var succeeds = true
+	override fun resolve(opMode: Wrapper, resolvedFeatures: List<Feature>, yielding: Boolean) {
+		log.add("resolve $name")
+		if (!succeeds) throw DependencyResolutionException("$name was told to fail")
+		if (requires != null && requires !in resolvedFeatures) throw DependencyResolutionException("$name requires $requires")
+	}
+	override fun accept(p0: Unit) {
+		log.add("accept $name")
+	}
+	override fun acceptErr(p0: Throwable) {
+		log.add("fail $name")
+	}
+}
@@ -0,0 +1,124 @@
+package dev.frozenmilk.dairy.core.test.dependency.resolution
+
+import dev.frozenmilk.dairy.core.Feature
+import dev.frozenmilk.dairy.core.dependency.Dependency
+import dev.frozenmilk.dairy.core.dependency.resolution.ResolvedFeatureIndex
+import org.junit.Assert
+import org.junit.Test
+
+class ResolvedFeatureIndexTest {
+	@Test
+	fun supertypesAndInterfaces() {
+		val base = BaseFeature()
+		val sub = SubFeature()
+		val other = OtherFeature()
+		val view = ResolvedFeatureIndex(listOf(base, sub, other)).view()
+
+		Assert.assertEquals(listOf(base, sub), view.instancesOf(BaseFeature::class.java))
+		Assert.assertEquals(listOf(sub), view.instancesOf(SubFeature::class.java))
+		Assert.assertEquals(listOf(sub, other), view.instancesOf(Marker::class.java))
+		Assert.assertEquals(listOf(base, sub, other), view.instancesOf(Feature::class.java))
+		Assert.assertEquals(listOf(base, sub, other), view.instancesOf(Any::class.java))
+		Assert.assertEquals(emptyList<Feature>(), view.instancesOf(String::class.java))
+	}
+
+	@Test
+	fun viewsDontSeeLaterAdds() {
+		val base = BaseFeature()
+		val sub = SubFeature()
+		val index = ResolvedFeatureIndex(listOf(base))
+		val early = index.view()
+		// builds the entry for BaseFeature before sub is added
+		Assert.assertEquals(listOf(base), early.instancesOf(BaseFeature::class.java))
+
+		index.add(sub)
+		val late = index.view()
+
+		Assert.assertEquals(1, early.size)
+		Assert.assertFalse(sub in early)
+		Assert.assertEquals(listOf(base), early.instancesOf(BaseFeature::class.java))
+		// the entry for Marker is built after sub was added, but the early view still can't see it
+		Assert.assertEquals(emptyList<Marker>(), early.instancesOf(Marker::class.java))
+		Assert.assertThrows(IndexOutOfBoundsException::class.java) { early[1] }
+
+		Assert.assertEquals(listOf(base, sub), late)
+		Assert.assertTrue(sub in late)
+		Assert.assertEquals(listOf(base, sub), late.instancesOf(BaseFeature::class.java))
+		Assert.assertEquals(listOf(sub), late.instancesOf(Marker::class.java))
+	}
+
+	@Test
+	fun manyInstancesOfOneClass() {
+		val subs = List(10) { SubFeature() }
+		val base = BaseFeature()
+		val index = ResolvedFeatureIndex(subs.take(5))
+		index.add(base)
+		subs.drop(5).forEach { index.add(it) }
+		val view = index.view()
+
+		Assert.assertEquals(subs, view.instancesOf(SubFeature::class.java))
+		Assert.assertEquals(subs.take(5) + base + subs.drop(5), view.instancesOf(BaseFeature::class.java))
+		Assert.assertEquals(listOf(base), view.instancesOf(listOf(BaseFeature::class.java), true))
+		Assert.assertEquals(subs.take(5) + base + subs.drop(5), view.instancesOf(listOf(BaseFeature::class.java), false))
+		Assert.assertEquals(subs.take(5) + base + subs.drop(5), view.instancesOf(listOf(SubFeature::class.java, BaseFeature::class.java), true))
+	}
+
+	@Test
+	fun matchesScanning() {
+		val makers = listOf(::BaseFeature, ::SubFeature, ::OtherFeature, ::PlainFeature)
+		val classes = listOf(Feature::class.java, BaseFeature::class.java, SubFeature::class.java, OtherFeature::class.java, PlainFeature::class.java, Marker::class.java)
+		val featureClasses = listOf(BaseFeature::class.java, SubFeature::class.java, OtherFeature::class.java, PlainFeature::class.java)
+		val classSets = listOf(
+			featureClasses.take(1),
+			featureClasses.take(2),
+			featureClasses.drop(1),
+			featureClasses,
+		)
+
+		val features = mutableListOf<Feature>()
+		val index = ResolvedFeatureIndex(emptyList())
+		val views = mutableListOf(index.view())
+		repeat(40) {
+			val feature = makers[(it * 7 + it / 3) % makers.size]()
+			features.add(feature)
+			index.add(feature)
+			views.add(index.view())
+			// look up some classes part way through, so their entries have to be kept up to date as features are added
+			if (it % 5 == 0) index.view().instancesOf(classes[it % classes.size])
+		}
+
+		views.forEachIndexed { size, view ->
+			val prefix = features.take(size)
+			Assert.assertEquals(prefix, view)
+			classes.forEach { cls ->
+				Assert.assertEquals(prefix.filterIsInstance(cls), view.instancesOf(cls))
+			}
+			classSets.forEach { set ->
+				Assert.assertEquals(
+					prefix.filter { feature -> set.any { it.isAssignableFrom(feature.javaClass) } },
+					view.instancesOf(set, false)
+				)
+				Assert.assertEquals(
+					prefix.filter { feature -> feature.javaClass in set },
+					view.instancesOf(set, true)
+				)
+			}
+		}
+	}
+}
+
+private interface Marker
+
+private open class BaseFeature : Feature {
+	override var dependency: Dependency<*> = Dependency { _, _, _ -> }
+}
+
+private class SubFeature : BaseFeature(), Marker
+
+private class OtherFeature : Feature, Marker {
+	override var dependency: Dependency<*> = Dependency { _, _, _ -> }
+}
+
+private class PlainFeature : Feature {
+	override var dependency: Dependency<*> = Dependency { _, _, _ -> }
+}
@@ -0,0 +1,63 @@
+package dev.frozenmilk.dairy.core.test.registrar
+
+import dev.frozenmilk.dairy.core.Feature
+import dev.frozenmilk.dairy.core.FeatureRegistrar
+import dev.frozenmilk.dairy.core.dependency.Dependency
+import dev.frozenmilk.dairy.core.dependency.lazy.Yielding
+import dev.frozenmilk.dairy.testrt.OpModeTestRunner
+import dev.frozenmilk.dairy.testrt.TestOpMode
+import org.junit.Assert
+import org.junit.runner.RunWith
+
+@RunWith(OpModeTestRunner::class)
+class ActiveFeaturesSnapshotTest : TestOpMode() {
+	private val attached = SnapshotFeature("attached").apply { register() }
+	private val late = SnapshotFeature("late")
+	private var initSnapshot = emptyList<Feature>()
+	private var initVersion = 0
+	private var lateSnapshot = emptyList<Feature>()
+
+	override fun init() {
+		if (!attached.active) Assert.fail("$attached should be attached")
+		initSnapshot = FeatureRegistrar.activeFeatures
+		initVersion = FeatureRegistrar.activeFeaturesVersion
+		@Suppress("UNCHECKED_CAST")
+		Assert.assertThrows(UnsupportedOperationException::class.java) { (initSnapshot as MutableList<Feature>).add(late) }
+		@Suppress("UNCHECKED_CAST")
+		Assert.assertThrows(UnsupportedOperationException::class.java) { (initSnapshot as MutableList<Feature>).remove(attached) }
+		// already registered, so membership doesn't change
+		attached.register()
+	}
+
+	override fun init_loop() {
+		Assert.assertSame(initSnapshot, FeatureRegistrar.activeFeatures)
+		Assert.assertEquals(initVersion, FeatureRegistrar.activeFeaturesVersion)
+		late.register()
+	}
+
+	override fun start() {
+		Assert.assertEquals(initVersion + 1, FeatureRegistrar.activeFeaturesVersion)
+		lateSnapshot = FeatureRegistrar.activeFeatures
+		Assert.assertTrue(late in lateSnapshot)
+		// taken before late was activated, so it doesn't see it
+		Assert.assertFalse(late in initSnapshot)
+		late.deregister()
+	}
+
+	override fun loop() {
+		Assert.assertEquals(initVersion + 2, FeatureRegistrar.activeFeaturesVersion)
+		Assert.assertFalse(late in FeatureRegistrar.activeFeatures)
+		Assert.assertTrue(late in lateSnapshot)
+		// isn't active, so membership doesn't change
+		late.deregister()
+	}
+
+	override fun stop() {
+		Assert.assertEquals(initVersion + 2, FeatureRegistrar.activeFeaturesVersion)
+	}
+}
+
+private class SnapshotFeature(private val name: String) : Feature {
+	override var dependency: Dependency<*> = Yielding
+	override fun toString() = name
+}
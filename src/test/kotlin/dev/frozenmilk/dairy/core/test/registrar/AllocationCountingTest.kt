@@ -0,0 +1,43 @@
+package dev.frozenmilk.dairy.core.test.registrar
+
+import dev.frozenmilk.dairy.core.Feature
+import dev.frozenmilk.dairy.core.FeatureRegistrar
+import dev.frozenmilk.dairy.core.dependency.Dependency
+import dev.frozenmilk.dairy.core.dependency.lazy.Yielding
+import dev.frozenmilk.dairy.core.wrapper.Wrapper
+import dev.frozenmilk.dairy.testrt.OpModeTestRunner
+import dev.frozenmilk.dairy.testrt.TestOpMode
+import org.junit.Assert
+import org.junit.runner.RunWith
+
+@RunWith(OpModeTestRunner::class)
+@FeatureRegistrar.CountAllocations
+class AllocationCountingTest : TestOpMode() {
+	private val allocating = AllocatingFeature()
+	private var userAllocation: ByteArray? = null
+	override fun init() {
+		if (!allocating.active) Assert.fail("$allocating should be attached")
+	}
+	override fun loop() {
+		userAllocation = ByteArray(2048)
+	}
+	override fun stop() {
+		// nothing is counted on runtimes without a counter
+		if (!FeatureRegistrar.allocationCountingSupported) return
+		val stats = FeatureRegistrar.hookAllocations(allocating)["preUserLoopHook"] ?: throw AssertionError("preUserLoopHook should have been counted")
+		Assert.assertEquals(1L, stats.count)
+		Assert.assertTrue("$stats", stats.last >= 1024)
+		Assert.assertTrue("${FeatureRegistrar.userLoopAllocations}", FeatureRegistrar.userLoopAllocations.last >= 2048)
+	}
+}
+
+private class AllocatingFeature : Feature {
+	init {
+		register()
+	}
+	override var dependency: Dependency<*> = Yielding
+	private var buffer: ByteArray? = null
+	override fun preUserLoopHook(opMode: Wrapper) {
+		buffer = ByteArray(1024)
+	}
+}
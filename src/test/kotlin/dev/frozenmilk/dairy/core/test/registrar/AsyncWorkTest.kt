@@ -0,0 +1,42 @@
+package dev.frozenmilk.dairy.core.test.registrar
+
+import dev.frozenmilk.dairy.core.Feature
+import dev.frozenmilk.dairy.core.dependency.Dependency
+import dev.frozenmilk.dairy.core.dependency.lazy.Yielding
+import dev.frozenmilk.dairy.core.wrapper.Wrapper
+import dev.frozenmilk.dairy.testrt.OpModeTestRunner
+import dev.frozenmilk.dairy.testrt.TestOpMode
+import org.junit.Assert
+import org.junit.runner.RunWith
+import java.util.concurrent.Callable
+import java.util.concurrent.Future
+
+@RunWith(OpModeTestRunner::class)
+class AsyncWorkTest : TestOpMode() {
+	private val feature = AsyncFeature()
+	override fun init() {
+		if (!feature.active) Assert.fail("$feature should be attached")
+	}
+	override fun loop() {
+		Assert.assertEquals(listOf(Thread.currentThread()), feature.hookThreads)
+		Assert.assertEquals(1, feature.results.size)
+		Assert.assertNotEquals(Thread.currentThread(), feature.results[0])
+	}
+}
+
+private class AsyncFeature : Feature {
+	init {
+		register()
+	}
+	override var dependency: Dependency<*> = Yielding
+	val hookThreads = mutableListOf<Thread>()
+	val results = mutableListOf<Thread>()
+	private var work: Future<Thread>? = null
+	override fun postUserStartHook(opMode: Wrapper) {
+		work = async(Callable { Thread.currentThread() })
+	}
+	override fun preUserLoopHook(opMode: Wrapper) {
+		hookThreads.add(Thread.currentThread())
+		results.add(work!!.get())
+	}
+}
@@ -0,0 +1,36 @@
+package dev.frozenmilk.dairy.core.test.registrar
+
+import dev.frozenmilk.dairy.core.util.supplier.numeric.EnhancedDoubleSupplier
+import dev.frozenmilk.dairy.core.util.supplier.numeric.PrimitiveDoubleSupplier
+import dev.frozenmilk.dairy.testrt.OpModeTestRunner
+import dev.frozenmilk.dairy.testrt.TestOpMode
+import org.junit.Assert
+import org.junit.runner.RunWith
+
+@RunWith(OpModeTestRunner::class)
+class FirstPhaseVelocityTest : TestOpMode() {
+	private var position = 1.0
+	private lateinit var supplier: EnhancedDoubleSupplier
+	private lateinit var primitiveSupplier: PrimitiveDoubleSupplier
+
+	override fun init() {
+		// built and first read in the same phase, so the first measurements share a time
+		supplier = EnhancedDoubleSupplier { position }
+		primitiveSupplier = PrimitiveDoubleSupplier { position }
+		Assert.assertEquals(1.0, supplier.state, 0.0)
+		Assert.assertEquals(0.0, supplier.velocity, 0.0)
+		Assert.assertEquals(0.0, supplier.rawVelocity, 0.0)
+		Assert.assertEquals(0.0, supplier.acceleration, 0.0)
+		Assert.assertEquals(0.0, supplier.rawAcceleration, 0.0)
+		Assert.assertEquals(0.0, primitiveSupplier.velocity, 0.0)
+		Assert.assertEquals(0.0, primitiveSupplier.rawVelocity, 0.0)
+		Assert.assertEquals(0.0, primitiveSupplier.acceleration, 0.0)
+		position = 2.0
+	}
+
+	override fun loop() {
+		listOf(supplier.velocity, supplier.rawVelocity, supplier.acceleration, supplier.rawAcceleration, primitiveSupplier.velocity, primitiveSupplier.acceleration).forEach {
+			Assert.assertFalse("$it", it.isNaN() || it.isInfinite())
+		}
+	}
+}
@@ -0,0 +1,51 @@
+package dev.frozenmilk.dairy.core.test.registrar
+
+import dev.frozenmilk.dairy.core.Feature
+import dev.frozenmilk.dairy.core.dependency.Dependency
+import dev.frozenmilk.dairy.core.dependency.lazy.Yielding
+import dev.frozenmilk.dairy.core.wrapper.Wrapper
+import dev.frozenmilk.dairy.testrt.OpModeTestRunner
+import dev.frozenmilk.dairy.testrt.TestOpMode
+import org.junit.Assert
+import org.junit.runner.RunWith
+
+@RunWith(OpModeTestRunner::class)
+class HookDispatchTest : TestOpMode() {
+	private val calls = mutableListOf<String>()
+	private val features = listOf(
+		LoopRecordingFeature("a", calls),
+		SilentFeature(),
+		LoopRecordingFeature("b", calls),
+	)
+	override fun init() {
+		features.forEach {
+			if (!it.active) Assert.fail("$it should be attached")
+		}
+	}
+	override fun loop() {
+		Assert.assertEquals(listOf("pre a", "pre b"), calls)
+	}
+	override fun stop() {
+		Assert.assertEquals(listOf("pre a", "pre b", "post b", "post a"), calls)
+	}
+}
+
+private class LoopRecordingFeature(private val name: String, private val calls: MutableList<String>) : Feature {
+	init {
+		register()
+	}
+	override var dependency: Dependency<*> = Yielding
+	override fun preUserLoopHook(opMode: Wrapper) {
+		calls.add("pre $name")
+	}
+	override fun postUserLoopHook(opMode: Wrapper) {
+		calls.add("post $name")
+	}
+}
+
+private class SilentFeature : Feature {
+	init {
+		register()
+	}
+	override var dependency: Dependency<*> = Yielding
+}
@@ -0,0 +1,39 @@
+package dev.frozenmilk.dairy.core.test.registrar
+
+import dev.frozenmilk.dairy.core.Feature
+import dev.frozenmilk.dairy.core.FeatureRegistrar
+import dev.frozenmilk.dairy.core.dependency.Dependency
+import dev.frozenmilk.dairy.core.dependency.lazy.Yielding
+import dev.frozenmilk.dairy.core.wrapper.Wrapper
+import dev.frozenmilk.dairy.testrt.OpModeTestRunner
+import dev.frozenmilk.dairy.testrt.TestOpMode
+import org.junit.Assert
+import org.junit.runner.RunWith
+
+@RunWith(OpModeTestRunner::class)
+class LoopClockTest : TestOpMode() {
+	private val feature = LoopClockFeature()
+	private var initTime = 0L
+	override fun init() {
+		if (!feature.active) Assert.fail("$feature should be attached")
+		initTime = FeatureRegistrar.loopNanoTime
+		Thread.sleep(1)
+		Assert.assertEquals(initTime, FeatureRegistrar.loopNanoTime)
+	}
+	override fun loop() {
+		Thread.sleep(1)
+		Assert.assertEquals(feature.preLoopTime, FeatureRegistrar.loopNanoTime)
+		Assert.assertTrue(FeatureRegistrar.loopNanoTime > initTime)
+	}
+}
+
+private class LoopClockFeature : Feature {
+	init {
+		register()
+	}
+	override var dependency: Dependency<*> = Yielding
+	var preLoopTime = 0L
+	override fun preUserLoopHook(opMode: Wrapper) {
+		preLoopTime = FeatureRegistrar.loopNanoTime
+	}
+}
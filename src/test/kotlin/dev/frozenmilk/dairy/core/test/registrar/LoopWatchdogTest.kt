@@ -0,0 +1,41 @@
+package dev.frozenmilk.dairy.core.test.registrar
+
+import dev.frozenmilk.dairy.core.Feature
+import dev.frozenmilk.dairy.core.dependency.Dependency
+import dev.frozenmilk.dairy.core.dependency.lazy.Yielding
+import dev.frozenmilk.dairy.core.util.LoopWatchdog
+import dev.frozenmilk.dairy.core.wrapper.Wrapper
+import dev.frozenmilk.dairy.testrt.OpModeTestRunner
+import dev.frozenmilk.dairy.testrt.TestOpMode
+import org.junit.Assert
+import org.junit.runner.RunWith
+
+@RunWith(OpModeTestRunner::class)
+@LoopWatchdog.Attach(budget = 1.0)
+class LoopWatchdogTest : TestOpMode() {
+	private val slow = SlowFeature()
+	init {
+		LoopWatchdog.register()
+	}
+	override fun init() {
+		if (!slow.active) Assert.fail("$slow should be attached")
+		if (!LoopWatchdog.active) Assert.fail("LoopWatchdog should be attached")
+	}
+	override fun stop() {
+		Assert.assertEquals(1L, LoopWatchdog.overruns)
+		val incident = LoopWatchdog.incidents.single()
+		Assert.assertEquals("SlowFeature", incident.feature)
+		Assert.assertEquals("preUserLoopHook", incident.hook)
+		Assert.assertTrue(incident.loop >= incident.culpritLoop)
+	}
+}
+
+private class SlowFeature : Feature {
+	init {
+		register()
+	}
+	override var dependency: Dependency<*> = Yielding
+	override fun preUserLoopHook(opMode: Wrapper) {
+		Thread.sleep(5)
+	}
+}
@@ -0,0 +1,57 @@
+package dev.frozenmilk.dairy.core.test.registrar
+
+import dev.frozenmilk.dairy.core.Feature
+import dev.frozenmilk.dairy.core.dependency.Dependency
+import dev.frozenmilk.dairy.core.dependency.lazy.Yielding
+import dev.frozenmilk.dairy.core.wrapper.Wrapper
+import dev.frozenmilk.dairy.testrt.OpModeTestRunner
+import dev.frozenmilk.dairy.testrt.TestOpMode
+import org.junit.Assert
+import org.junit.runner.RunWith
+import java.util.Collections
+
+@RunWith(OpModeTestRunner::class)
+class ParallelHookTest : TestOpMode() {
+	private val calls = mutableListOf<String>()
+	private val parallelCalls = Collections.synchronizedList(mutableListOf<String>())
+	private val features = listOf(
+		SerialFeature("a", calls),
+		ParallelFeature("x", parallelCalls),
+		SerialFeature("b", calls),
+		ParallelFeature("y", parallelCalls),
+	)
+	override fun init() {
+		features.forEach {
+			if (!it.active) Assert.fail("$it should be attached")
+		}
+	}
+	override fun loop() {
+		// serial features keep their order
+		Assert.assertEquals(listOf("a", "b"), calls)
+		// parallel features have finished before the user's code runs
+		Assert.assertEquals(setOf("x", "y"), parallelCalls.toSet())
+		Assert.assertEquals(2, parallelCalls.size)
+	}
+}
+
+private class SerialFeature(private val name: String, private val calls: MutableList<String>) : Feature {
+	init {
+		register()
+	}
+	override var dependency: Dependency<*> = Yielding
+	override fun preUserLoopHook(opMode: Wrapper) {
+		calls.add(name)
+	}
+}
+
+private class ParallelFeature(private val name: String, private val calls: MutableList<String>) : Feature {
+	init {
+		register()
+	}
+	override var dependency: Dependency<*> = Yielding
+	@Feature.ParallelSafe
+	override fun preUserLoopHook(opMode: Wrapper) {
+		Thread.sleep(10)
+		calls.add(name)
+	}
+}
@@ -0,0 +1,70 @@
+package dev.frozenmilk.dairy.core.test.registrar
+
+import dev.frozenmilk.dairy.core.Feature
+import dev.frozenmilk.dairy.core.FeatureRegistrar
+import dev.frozenmilk.dairy.core.dependency.Dependency
+import dev.frozenmilk.dairy.core.dependency.lazy.Yielding
+import dev.frozenmilk.dairy.testrt.OpModeTestRunner
+import dev.frozenmilk.dairy.testrt.TestOpMode
+import org.junit.Assert
+import org.junit.runner.RunWith
+import java.util.concurrent.CountDownLatch
+import kotlin.concurrent.thread
+
+private const val THREADS = 8
+private const val FEATURES_PER_THREAD = 64
+
+@RunWith(OpModeTestRunner::class)
+class RegistrationQueueTest : TestOpMode() {
+	// the queue only holds features weakly
+	private val features = List(THREADS) { t -> List(FEATURES_PER_THREAD) { QueuedFeature("$t.$it") } }
+	private val kept = features.flatten().filterIndexed { i, _ -> i % 2 == 0 }
+
+	override fun init() {
+		// all queued from other threads at once, and drained together at the start of the next hook
+		val start = CountDownLatch(1)
+		val threads = features.map { own ->
+			thread {
+				start.await()
+				own.forEach { it.register() }
+				own.forEachIndexed { i, feature -> if (i % 2 != 0) feature.deregister() }
+			}
+		}
+		start.countDown()
+		threads.forEach { it.join() }
+	}
+
+	override fun loop() {
+		Assert.assertEquals(kept.toSet(), FeatureRegistrar.registeredFeatures.filterIsInstance<QueuedFeature>().toSet())
+		val active = FeatureRegistrar.activeFeatures.filterIsInstance<QueuedFeature>()
+		Assert.assertEquals(kept.size, active.size)
+		Assert.assertEquals(kept.toSet(), active.toSet())
+	}
+}
+
+@RunWith(OpModeTestRunner::class)
+class RegistrationQueueOrderTest : TestOpMode() {
+	private val reactivated = QueuedFeature("reactivated").apply { register() }
+	private val fresh = QueuedFeature("fresh")
+
+	override fun init() {
+		if (!reactivated.active) Assert.fail("$reactivated should be attached")
+		// each pair is drained together, and must be applied in the order it was queued
+		fresh.register()
+		fresh.deregister()
+		reactivated.deregister()
+		reactivated.register()
+	}
+
+	override fun loop() {
+		Assert.assertFalse(fresh in FeatureRegistrar.registeredFeatures)
+		Assert.assertFalse(fresh.active)
+		Assert.assertTrue(reactivated in FeatureRegistrar.registeredFeatures)
+		Assert.assertTrue(reactivated.active)
+	}
+}
+
+private class QueuedFeature(private val name: String) : Feature {
+	override var dependency: Dependency<*> = Yielding
+	override fun toString() = name
+}
@@ -0,0 +1,36 @@
+package dev.frozenmilk.dairy.core.test.registrar
+
+import dev.frozenmilk.dairy.core.FeatureRegistrar
+import dev.frozenmilk.dairy.core.util.VirtualTimeSource
+import dev.frozenmilk.dairy.core.util.supplier.numeric.PrimitiveDoubleSupplier
+import dev.frozenmilk.dairy.testrt.OpModeTestRunner
+import dev.frozenmilk.dairy.testrt.TestOpMode
+import dev.frozenmilk.dairy.testrt.VirtualTime
+import org.junit.Assert
+import org.junit.runner.RunWith
+
+@RunWith(OpModeTestRunner::class)
+@VirtualTime(period = 0.01)
+class VirtualTimeTest : TestOpMode() {
+	// moves at 3 units per simulated second
+	private val supplier = PrimitiveDoubleSupplier { FeatureRegistrar.loopNanoTime * 3.0 / 1e9 }
+	private var startTime = 0L
+	private var loops = 0
+	override fun init() {
+		Assert.assertTrue(FeatureRegistrar.timeSource is VirtualTimeSource)
+		advanceToStop = false
+	}
+	override fun start() {
+		startTime = FeatureRegistrar.loopNanoTime
+	}
+	override fun loop() {
+		loops++
+		Assert.assertEquals(startTime + loops * 10_000_000L, FeatureRegistrar.loopNanoTime)
+		if (loops > 2) {
+			Assert.assertEquals(3.0, supplier.rawVelocity, 1e-6)
+			Assert.assertEquals(3.0, supplier.velocity, 1e-6)
+		}
+		// ten simulated minutes
+		if (loops == 60_000) advanceToStop = true
+	}
+}
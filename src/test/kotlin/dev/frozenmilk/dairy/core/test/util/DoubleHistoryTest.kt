@@ -0,0 +1,43 @@
+package dev.frozenmilk.dairy.core.test.util
+
+import dev.frozenmilk.dairy.core.util.supplier.numeric.DoubleHistory
+import org.junit.Assert
+import org.junit.Test
+
+class DoubleHistoryTest {
+	@Test
+	fun slopeCoversTheWindow() {
+		val history = DoubleHistory(0.0, 0.0)
+		(1..10).forEach { history.add(it * 2.0, it * 0.01, 0.025) }
+		Assert.assertEquals(2.0 / 0.01, history.rawSlope, 1e-9)
+		Assert.assertEquals(2.0 / 0.01, history.slope, 1e-9)
+		// enough to cover the window, and one more for the span to reach it
+		Assert.assertEquals(4, history.size)
+		Assert.assertEquals(20.0, history.last, 0.0)
+	}
+
+	@Test
+	fun slopeAveragesAcrossTheWindow() {
+		val history = DoubleHistory(0.0, 0.0)
+		history.add(1.0, 0.01, 1.0)
+		history.add(1.0, 0.02, 1.0)
+		Assert.assertEquals(0.0, history.rawSlope, 0.0)
+		Assert.assertEquals(1.0 / 0.02, history.slope, 1e-9)
+	}
+
+	@Test
+	fun growsPastCapacity() {
+		val history = DoubleHistory(0.0, 0.0, 2)
+		(1..100).forEach { history.add(it.toDouble(), it.toDouble(), 1000.0) }
+		Assert.assertEquals(101, history.size)
+		Assert.assertEquals(1.0, history.slope, 1e-9)
+		Assert.assertEquals(100.0, history.last, 0.0)
+	}
+
+	@Test
+	fun noElapsedTimeHasNoSlope() {
+		val history = DoubleHistory(5.0, 1.0)
+		Assert.assertEquals(0.0, history.slope, 0.0)
+		Assert.assertEquals(0.0, history.rawSlope, 0.0)
+	}
+}
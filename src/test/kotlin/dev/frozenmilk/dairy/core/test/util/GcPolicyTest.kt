@@ -0,0 +1,20 @@
+package dev.frozenmilk.dairy.core.test.util
+
+import dev.frozenmilk.dairy.core.util.GcPolicy
+import org.junit.Assert
+import org.junit.Test
+
+class GcPolicyTest {
+	@Test
+	fun aboveThreshold() {
+		val policy = GcPolicy.aboveThreshold(0.5)
+		Assert.assertEquals(GcPolicy.Decision.SKIP, policy.decide(GcPolicy.Point.POST_INIT, 49, 100))
+		Assert.assertEquals(GcPolicy.Decision.COLLECT, policy.decide(GcPolicy.Point.POST_INIT, 50, 100))
+	}
+
+	@Test
+	fun aboveThresholdAsync() {
+		val policy = GcPolicy.aboveThreshold(0.5, GcPolicy.Decision.COLLECT_ASYNC)
+		Assert.assertEquals(GcPolicy.Decision.COLLECT_ASYNC, policy.decide(GcPolicy.Point.POST_STOP, 75, 100))
+	}
+}
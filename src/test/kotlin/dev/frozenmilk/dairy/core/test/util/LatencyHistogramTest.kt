@@ -0,0 +1,45 @@
+package dev.frozenmilk.dairy.core.test.util
+
+import dev.frozenmilk.dairy.core.util.LatencyHistogram
+import org.junit.Assert
+import org.junit.Test
+
+class LatencyHistogramTest {
+	@Test
+	fun empty() {
+		val histogram = LatencyHistogram()
+		Assert.assertEquals(0L, histogram.count)
+		Assert.assertEquals(0L, histogram.p50)
+		Assert.assertEquals(0L, histogram.max)
+	}
+
+	@Test
+	fun percentilesAreWithinBucketError() {
+		val histogram = LatencyHistogram()
+		(1L..1000L).forEach { histogram.record(it * 1000) }
+		Assert.assertEquals(1000L, histogram.count)
+		Assert.assertEquals(1_000_000L, histogram.max)
+		val p50 = histogram.p50
+		Assert.assertTrue("$p50", p50 >= 500_000L && p50 <= 625_000L)
+		val p99 = histogram.p99
+		Assert.assertTrue("$p99", p99 >= 990_000L && p99 <= 1_000_000L)
+	}
+
+	@Test
+	fun neverExceedsMax() {
+		val histogram = LatencyHistogram()
+		histogram.record(1001)
+		Assert.assertEquals(1001L, histogram.percentile(100.0))
+		Assert.assertEquals(1001L, histogram.p50)
+	}
+
+	@Test
+	fun reset() {
+		val histogram = LatencyHistogram()
+		histogram.record(10)
+		histogram.reset()
+		Assert.assertEquals(0L, histogram.count)
+		Assert.assertEquals(0L, histogram.max)
+		Assert.assertEquals(0L, histogram.p99)
+	}
+}
@@ -0,0 +1,53 @@
+package dev.frozenmilk.dairy.core.test.util
+
+import dev.frozenmilk.dairy.core.util.index.StaticInstanceIndex
+import org.junit.Assert
+import org.junit.Test
+
+class StaticInstanceIndexTest {
+	private val index = StaticInstanceIndex.Index.parse(
+		sequenceOf(
+			"# generated by static-instance-index.gradle.kts",
+			"@package com.qualcomm.ftcrobotcontroller",
+			"@build 1234",
+			"@buildConfig org.firstinspires.ftc.teamcode.BuildConfig",
+			"-org.firstinspires.ftc.teamcode.A",
+			"+org.firstinspires.ftc.teamcode.B",
+			"",
+			"-org.firstinspires.ftc.teamcode.C",
+		)
+	)
+
+	@Test
+	fun readsStamps() {
+		Assert.assertEquals("com.qualcomm.ftcrobotcontroller", index.packageName)
+		Assert.assertEquals("1234", index.buildId)
+		Assert.assertEquals("org.firstinspires.ftc.teamcode.BuildConfig", index.buildConfig)
+	}
+
+	@Test
+	fun readsClasses() {
+		Assert.assertEquals(listOf("org.firstinspires.ftc.teamcode.B"), index.holders)
+		Assert.assertEquals(
+			setOf("org.firstinspires.ftc.teamcode.A", "org.firstinspires.ftc.teamcode.B", "org.firstinspires.ftc.teamcode.C"),
+			index.examined
+		)
+	}
+
+	@Test
+	fun onlyCoversTheBuildItWasWrittenFor() {
+		Assert.assertTrue(index.covers("com.qualcomm.ftcrobotcontroller", "1234"))
+		// from another build, e.g. one that skipped the indexer
+		Assert.assertFalse(index.covers("com.qualcomm.ftcrobotcontroller", "5678"))
+		// the app doesn't have a build id
+		Assert.assertFalse(index.covers("com.qualcomm.ftcrobotcontroller", null))
+		// shipped by a library
+		Assert.assertFalse(index.covers("com.example.other", "1234"))
+	}
+
+	@Test
+	fun unstampedIndicesCoverNothing() {
+		val unstamped = StaticInstanceIndex.Index.parse(sequenceOf("+org.firstinspires.ftc.teamcode.B"))
+		Assert.assertFalse(unstamped.covers("com.qualcomm.ftcrobotcontroller", "1234"))
+	}
+}
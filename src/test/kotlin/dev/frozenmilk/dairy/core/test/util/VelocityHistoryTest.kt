@@ -0,0 +1,55 @@
+package dev.frozenmilk.dairy.core.test.util
+
+import dev.frozenmilk.dairy.core.util.supplier.numeric.VelocityHistory
+import org.junit.Assert
+import org.junit.Test
+
+class VelocityHistoryTest {
+	@Test
+	fun windowSpansTheOldestMeasurementNeeded() {
+		val history = VelocityHistory(0.0, 0.0, 2)
+		(1..10).forEach { history.add(it * 2.0, it * 0.01, 0.025) }
+		Assert.assertEquals(4, history.size)
+		val window = history.window()
+		Assert.assertEquals(14.0, window.start, 0.0)
+		Assert.assertEquals(20.0, window.end, 0.0)
+		Assert.assertEquals(0.07, window.startTime, 1e-9)
+		Assert.assertEquals(0.10, window.endTime, 1e-9)
+	}
+
+	@Test
+	fun lastSpansTheNewestStep() {
+		val history = VelocityHistory(0.0, 0.0, 8)
+		history.add(1.0, 1.0, 10.0)
+		history.add(3.0, 2.0, 10.0)
+		val last = history.last()
+		Assert.assertEquals(1.0, last.start, 0.0)
+		Assert.assertEquals(3.0, last.end, 0.0)
+		Assert.assertEquals(1.0, last.startTime, 0.0)
+		Assert.assertEquals(2.0, last.endTime, 0.0)
+	}
+
+	@Test
+	fun reserveKeepsOrder() {
+		val history = VelocityHistory(0.0, 0.0, 4)
+		// wrap around the ring before growing it
+		(1..6).forEach { history.add(it.toDouble(), it.toDouble(), 2.5) }
+		history.reserve(64)
+		history.add(7.0, 7.0, 100.0)
+		val window = history.window()
+		Assert.assertEquals(3.0, window.start, 0.0)
+		Assert.assertEquals(7.0, window.end, 0.0)
+	}
+
+	@Test
+	fun packetsStepBetweenMeasurements() {
+		val history = VelocityHistory(0.0, 0.0, 4)
+		(1..6).forEach { history.add(it * 2.0, it.toDouble(), 2.5) }
+		val packets = history.packets()
+		Assert.assertEquals(history.size, packets.size)
+		Assert.assertEquals(listOf(6.0, 6.0, 8.0, 10.0), packets.map { it.start })
+		Assert.assertEquals(listOf(6.0, 8.0, 10.0, 12.0), packets.map { it.end })
+		Assert.assertEquals(listOf(3.0, 3.0, 4.0, 5.0), packets.map { it.startTime })
+		Assert.assertEquals(listOf(3.0, 4.0, 5.0, 6.0), packets.map { it.endTime })
+	}
+}
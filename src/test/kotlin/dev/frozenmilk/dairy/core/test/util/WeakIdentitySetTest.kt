@@ -0,0 +1,68 @@
+package dev.frozenmilk.dairy.core.test.util
+
+import dev.frozenmilk.dairy.core.util.WeakIdentitySet
+import org.junit.Assert
+import org.junit.Test
+
+class WeakIdentitySetTest {
+	private data class Equal(val value: Int)
+
+	@Test
+	fun addIsDeduplicated() {
+		val set = WeakIdentitySet<Equal>()
+		val element = Equal(0)
+		Assert.assertTrue(set.add(element))
+		Assert.assertFalse(set.add(element))
+		Assert.assertEquals(listOf(element), set.toList())
+	}
+
+	@Test
+	fun comparesByIdentity() {
+		val set = WeakIdentitySet<Equal>()
+		val first = Equal(0)
+		val second = Equal(0)
+		Assert.assertTrue(set.add(first))
+		Assert.assertFalse(second in set)
+		Assert.assertTrue(set.add(second))
+		Assert.assertEquals(2, set.toList().size)
+	}
+
+	@Test
+	fun remove() {
+		val set = WeakIdentitySet<Equal>()
+		val first = Equal(0)
+		val second = Equal(1)
+		set.add(first)
+		set.add(second)
+		Assert.assertTrue(set.remove(first))
+		Assert.assertFalse(set.remove(first))
+		Assert.assertFalse(first in set)
+		Assert.assertEquals(listOf(second), set.toList())
+	}
+
+	@Test
+	fun iteratesInInsertionOrder() {
+		val set = WeakIdentitySet<Equal>()
+		val elements = (0 until 10).map { Equal(it) }
+		elements.forEach { set.add(it) }
+		Assert.assertEquals(elements, set.toList())
+	}
+
+	@Test
+	fun dropsCollectedElements() {
+		val set = WeakIdentitySet<Equal>()
+		val kept = Equal(0)
+		val collected = Equal(1)
+		set.add(kept)
+		set.add(collected)
+		set.simulateCollection(collected)
+
+		Assert.assertEquals(1, set.size)
+		Assert.assertEquals(listOf(kept), set.toList())
+		Assert.assertTrue(kept in set)
+		Assert.assertFalse(collected in set)
+		val added = Equal(2)
+		Assert.assertTrue(set.add(added))
+		Assert.assertEquals(listOf(kept, added), set.toList())
+	}
+}
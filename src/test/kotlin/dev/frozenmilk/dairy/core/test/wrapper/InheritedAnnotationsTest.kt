@@ -0,0 +1,44 @@
+package dev.frozenmilk.dairy.core.test.wrapper
+
+import dev.frozenmilk.dairy.core.wrapper.InheritedAnnotations
+import org.junit.Assert
+import org.junit.Test
+import java.lang.annotation.Inherited
+
+class InheritedAnnotationsTest {
+	@Target(AnnotationTarget.CLASS)
+	@Retention(AnnotationRetention.RUNTIME)
+	@Inherited
+	annotation class One
+
+	@Target(AnnotationTarget.CLASS)
+	@Retention(AnnotationRetention.RUNTIME)
+	@Inherited
+	annotation class Two
+
+	@Target(AnnotationTarget.CLASS)
+	@Retention(AnnotationRetention.RUNTIME)
+	annotation class Unused
+
+	@One
+	@Two
+	private class Annotated
+
+	@Test
+	fun cachedPerClass() {
+		Assert.assertSame(InheritedAnnotations.of(Annotated::class.java), InheritedAnnotations.of(Annotated::class.java))
+	}
+
+	@Test
+	fun indexedByClass() {
+		val annotations = InheritedAnnotations.of(Annotated::class.java)
+		Assert.assertTrue(One::class.java in annotations)
+		Assert.assertFalse(Unused::class.java in annotations)
+		Assert.assertEquals(1, annotations.instancesOf(One::class.java).size)
+		Assert.assertEquals(emptyList<Unused>(), annotations.instancesOf(Unused::class.java))
+		Assert.assertEquals(
+			annotations.filter { it is One || it is Two },
+			annotations.instancesOf(listOf(Two::class.java, One::class.java, Unused::class.java)),
+		)
+	}
+}
@@ -7,28 +7,23 @@ import com.qualcomm.robotcore.util.ThreadPool;
 
 import dev.frozenmilk.dairy.core.Feature;
 import dev.frozenmilk.dairy.core.FeatureRegistrar;
+import dev.frozenmilk.dairy.core.util.TimeSource;
+import dev.frozenmilk.dairy.core.util.VirtualTimeSource;
 import dev.frozenmilk.dairy.core.util.configurable.ConfigurableSinisterFilter;
 import dev.frozenmilk.dairy.core.wrapper.LinearOpModeWrapper;
 import dev.frozenmilk.dairy.core.wrapper.OpModeWrapper;
 import dev.frozenmilk.dairy.core.wrapper.Wrapper;
 import dev.frozenmilk.sinister.SinisterUtil;
-import dev.frozenmilk.util.cell.LateInitCell;
 import dev.frozenmilk.util.cell.MirroredCell;
-import java.lang.ref.WeakReference;
 import java.lang.reflect.Constructor;
 import java.lang.reflect.Field;
 import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
-import java.util.ArrayList;
 import java.util.LinkedHashSet;
 import java.util.List;
-import java.util.Queue;
-import java.util.Set;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 
-import kotlin.Pair;
-import kotlin.TuplesKt;
 import kotlin.collections.CollectionsKt;
 import kotlin.jvm.internal.Intrinsics;
 
@@ -49,25 +44,13 @@ public final class OpModeTestRunner extends BlockJUnit4ClassRunner {
 	@NotNull
 	private final MirroredCell<LinkedHashSet<Feature>> activeFeaturesMirror;
 	@NotNull
-	private final Runnable cleanFeatures;
-	@NotNull
-	private final MirroredCell<Queue<Pair<WeakReference<Feature>, Boolean>>> registrationQueueMirror;
-	@NotNull
-	private final MirroredCell<Set<WeakReference<Feature>>> registeredFeaturesMirror;
-	@NotNull
 	private final Runnable resolveRegistrationQueue;
 	@NotNull
-	private final MirroredCell<LateInitCell<Wrapper>> activeOpModeWrapperCellMirror;
-	@NotNull
-	private final LateInitCell<Wrapper> activeOpModeWrapper$delegate;
-	@NotNull
-	private final MirroredCell<Boolean> opModeRunningMirror;
+	private final Method beginOpMode;
 	@NotNull
 	private final Constructor<LinearOpModeWrapper> linearOpModeWrapperConstructor;
 	@NotNull
 	private final Constructor<OpModeWrapper> opModeWrapperConstructor;
-	@NotNull
-	private final MirroredCell<Boolean> logDependencyResolutionFailuresMirror;
 	
 	/** @noinspection KotlinInternalInJava*/
 	@NotNull
@@ -88,19 +71,6 @@ public final class OpModeTestRunner extends BlockJUnit4ClassRunner {
 		runWrapper.setAccessible(true);
 		this.testMethod = new FrameworkMethod(runWrapper);
 		this.activeFeaturesMirror = new MirroredCell<>(FeatureRegistrar.INSTANCE, "_activeFeatures");
-		final Method cleanFeatures = SinisterUtil.getAllMethods(FeatureRegistrar.class, m -> m.getName().equals("cleanFeatures")).get(0);
-		cleanFeatures.setAccessible(true);
-		this.cleanFeatures = () -> {
-			try {
-				cleanFeatures.invoke(FeatureRegistrar.INSTANCE);
-			} catch (IllegalAccessException e) {
-				throw new RuntimeException(e);
-			} catch (InvocationTargetException e) {
-				throw new RuntimeException(e.getCause());
-			}
-		};
-		this.registrationQueueMirror = new MirroredCell<>(FeatureRegistrar.INSTANCE, "registrationQueue");
-		this.registeredFeaturesMirror = new MirroredCell<>(FeatureRegistrar.INSTANCE, "_registeredFeatures");
 		final Method resolveRegistrationQueue = SinisterUtil.getAllMethods(FeatureRegistrar.class, m -> m.getName().equals("resolveRegistrationQueue")).get(0);
 		resolveRegistrationQueue.setAccessible(true);
 		this.resolveRegistrationQueue = () -> {
@@ -112,16 +82,14 @@ public final class OpModeTestRunner extends BlockJUnit4ClassRunner {
 				throw new RuntimeException(e.getCause());
 			}
 		};
-		this.activeOpModeWrapperCellMirror = new MirroredCell<>(FeatureRegistrar.INSTANCE, "activeOpModeWrapperCell");
-		this.activeOpModeWrapper$delegate = this.getActiveOpModeWrapperCell();
-		this.opModeRunningMirror = new MirroredCell<>(FeatureRegistrar.INSTANCE, "opModeRunning");
+		this.beginOpMode = SinisterUtil.getAllMethods(FeatureRegistrar.class, m -> m.getName().equals("beginOpMode")).get(0);
+		this.beginOpMode.setAccessible(true);
 		this.linearOpModeWrapperConstructor = LinearOpModeWrapper.class.getDeclaredConstructor(LinearOpMode.class, OpModeMeta.class);
 		Intrinsics.checkNotNullExpressionValue(this.linearOpModeWrapperConstructor, "getDeclaredConstructor(...)");
 		this.opModeWrapperConstructor = OpModeWrapper.class.getDeclaredConstructor(OpMode.class, OpModeMeta.class);
 		Intrinsics.checkNotNullExpressionValue(this.opModeWrapperConstructor, "getDeclaredConstructor(...)");
 		this.linearOpModeWrapperConstructor.setAccessible(true);
 		this.opModeWrapperConstructor.setAccessible(true);
-		this.logDependencyResolutionFailuresMirror = new MirroredCell<>(FeatureRegistrar.INSTANCE, "logDependencyResolutionFailures");
 	}
 	
 	//
@@ -155,33 +123,8 @@ public final class OpModeTestRunner extends BlockJUnit4ClassRunner {
 		return testRules;
 	}
 	
-	private Queue<Pair<WeakReference<Feature>, Boolean>> getRegistrationQueue() {
-		return this.registrationQueueMirror.get();
-	}
-	
-	private Set<WeakReference<Feature>> getRegisteredFeatures() {
-		return this.registeredFeaturesMirror.get();
-	}
-	
-	private LateInitCell<Wrapper> getActiveOpModeWrapperCell() {
-		return this.activeOpModeWrapperCellMirror.get();
-	}
-	
-	private Wrapper getActiveOpModeWrapper() {
-		return this.activeOpModeWrapper$delegate.get();
-	}
-	
-	private void setActiveOpModeWrapper(Wrapper var1) {
-		this.activeOpModeWrapper$delegate.accept(var1);
-	}
-	
-	private void setOpModeRunning(boolean var1) {
-		this.opModeRunningMirror.accept(var1);
-	}
-	
 	public void patchFeatureRegistrar(@NotNull OpMode opMode) throws Throwable {
 		Intrinsics.checkNotNullParameter(opMode, "opMode");
-		this.cleanFeatures.run();
 		OpModeMeta.Builder var10000 = new OpModeMeta.Builder();
 		String var10001 = opMode.getClass().getSimpleName();
 		OpModeMeta meta = var10000.setName(var10001).build();
@@ -200,20 +143,11 @@ public final class OpModeTestRunner extends BlockJUnit4ClassRunner {
 		Intrinsics.checkNotNull(var4);
 		var18 = (Wrapper)var4;
 		
-		this.setActiveOpModeWrapper(var18);
-		logDependencyResolutionFailuresMirror.accept(SinisterUtil.inheritsAnnotation(opMode.getClass(), FeatureRegistrar.LogDependencyResolutionExceptions.class));
-		this.setOpModeRunning(true);
-		Queue<Pair<WeakReference<Feature>, Boolean>> var16 = this.getRegistrationQueue();
-		Set<WeakReference<Feature>> $this$map$iv = this.getRegisteredFeatures();
-		ArrayList<Pair<WeakReference<Feature>, Boolean>> destination$iv$iv = new ArrayList<>($this$map$iv.size());
-		
-		for (WeakReference<Feature> it : $this$map$iv) {
-			Pair<WeakReference<Feature>, Boolean> var14 = TuplesKt.to(it, true);
-			destination$iv$iv.add(var14);
+		try {
+			this.beginOpMode.invoke(FeatureRegistrar.INSTANCE, var18);
+		} catch (InvocationTargetException e) {
+			throw e.getCause();
 		}
-		
-		var16.addAll(destination$iv$iv);
-		this.resolveRegistrationQueue.run();
 	}
 	
 	@NotNull
@@ -227,22 +161,28 @@ public final class OpModeTestRunner extends BlockJUnit4ClassRunner {
 					Test test = (Test) target;
 					test.configure();
 					
-					patchFeatureRegistrar(test.getOpMode());
+					VirtualTime virtualTime = test.getOpMode().getClass().getAnnotation(VirtualTime.class);
+					if (virtualTime != null) FeatureRegistrar.setTimeSource(new VirtualTimeSource());
 					try {
-						base.evaluate();
-					}
-					finally {
+						patchFeatureRegistrar(test.getOpMode());
 						try {
-							FeatureRegistrar.INSTANCE.onOpModePostStop(test.getOpMode());
+							base.evaluate();
 						}
 						finally {
-							for (WeakReference<Feature> wFef : getRegisteredFeatures()) {
-								Feature feature = wFef.get();
-								if (feature != null) feature.deregister();
+							try {
+								FeatureRegistrar.INSTANCE.onOpModePostStop(test.getOpMode());
+							}
+							finally {
+								for (Feature feature : FeatureRegistrar.getRegisteredFeatures()) {
+									feature.deregister();
+								}
+								resolveRegistrationQueue.run();
 							}
-							resolveRegistrationQueue.run();
 						}
 					}
+					finally {
+						if (virtualTime != null) FeatureRegistrar.setTimeSource(TimeSource.SYSTEM);
+					}
 				}
 			};
 		}
@@ -316,24 +256,39 @@ public final class OpModeTestRunner extends BlockJUnit4ClassRunner {
 		}
 	}
 	
+	/**
+	 * advances the {@link VirtualTimeSource} by one {@link VirtualTime#period()}, if the test is annotated with {@link VirtualTime}
+	 */
+	private static void advanceTime(@NotNull Test test) {
+		VirtualTime virtualTime = test.getOpMode().getClass().getAnnotation(VirtualTime.class);
+		if (virtualTime == null) return;
+		TimeSource timeSource = FeatureRegistrar.getTimeSource();
+		if (timeSource instanceof VirtualTimeSource) ((VirtualTimeSource) timeSource).advanceSeconds(virtualTime.period());
+	}
+	
 	private static void runIterativeOpMode(@NotNull OpModeWrapper wrapper, @NotNull Test test) {
 		System.out.print("\n\n---OpMode Init---\n\n\n");
+		advanceTime(test);
 		wrapper.init();
 		
 		do {
+			advanceTime(test);
 			wrapper.init_loop();
 		}
 		while (!test.getAdvanceToStart());
 		
 		System.out.print("\n\n---OpMode Start---\n\n\n");
+		advanceTime(test);
 		wrapper.start();
 		
 		do {
+			advanceTime(test);
 			wrapper.loop();
 		}
 		while (!test.getAdvanceToStop());
 		
 		System.out.print("\n\n---OpMode Stop---\n\n\n");
+		advanceTime(test);
 		wrapper.stop();
 	}
 }
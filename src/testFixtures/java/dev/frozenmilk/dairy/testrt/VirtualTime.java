@@ -0,0 +1,27 @@
+package dev.frozenmilk.dairy.testrt;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Inherited;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+import dev.frozenmilk.dairy.core.FeatureRegistrar;
+import dev.frozenmilk.dairy.core.util.VirtualTimeSource;
+
+/**
+ * runs the annotated test OpMode against a {@link VirtualTimeSource}, set as {@link FeatureRegistrar#getTimeSource()},
+ * which {@link OpModeTestRunner} advances by {@link #period()} before each phase of an iterative OpMode,
+ * so that loops run as fast as they can, and their results can be reproduced
+ * <p>
+ * a LinearOpMode has no phases for the runner to advance the time at, so has to advance it itself
+ */
+@Target(ElementType.TYPE)
+@Retention(RetentionPolicy.RUNTIME)
+@Inherited
+public @interface VirtualTime {
+	/**
+	 * simulated seconds per phase
+	 */
+	double period() default 0.02;
+}
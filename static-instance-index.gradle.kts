@@ -0,0 +1,129 @@
+// writes the index of classes that hold static Dairy Features, Configurables and Configurations,
+// which dev.frozenmilk.dairy.core.util.index.StaticInstanceIndex reads at startup, so that those classes don't have to be found by scanning
+//
+// runs on the JVM as part of the app's build, so none of it ends up in the app, see the README for how to apply it
+//
+// the index is stamped with the app's package, and a build id that is also put in the app's BuildConfig,
+// at startup an index is only used if both match, so an index left over from another build, or shipped by a library, is ignored
+//
+// the index lists every class it checked, the classes that aren't in it, e.g. OnBotJava, are still scanned at startup
+//
+// classes are checked without being initialised, by the declared type of their static fields,
+// so a static field with a declared type like Any that holds a Feature won't be found,
+// classes that can't be loaded are listed as holders, so that they are still checked at startup
+
+import com.android.build.api.artifact.ScopedArtifact
+import com.android.build.api.variant.ApplicationAndroidComponentsExtension
+import com.android.build.api.variant.BuildConfigField
+import com.android.build.api.variant.ScopedArtifacts
+import java.lang.reflect.Modifier
+import java.net.URLClassLoader
+import java.util.UUID
+import java.util.zip.ZipFile
+
+abstract class StaticInstanceIndexTask : DefaultTask() {
+	@get:Classpath
+	abstract val jars: ListProperty<RegularFile>
+
+	@get:Classpath
+	abstract val directories: ListProperty<Directory>
+
+	@get:Classpath
+	abstract val bootClasspath: ConfigurableFileCollection
+
+	@get:Input
+	abstract val packageName: Property<String>
+
+	@get:Input
+	abstract val buildId: Property<String>
+
+	@get:Input
+	abstract val buildConfig: Property<String>
+
+	@get:OutputDirectory
+	abstract val output: DirectoryProperty
+
+	@TaskAction
+	fun index() {
+		val roots = jars.get().map { it.asFile } + directories.get().map { it.asFile }
+		val loader = URLClassLoader((roots + bootClasspath.files).map { it.toURI().toURL() }.toTypedArray(), null)
+		val indexedTypes = INDEXED_TYPES.map {
+			try {
+				Class.forName(it, false, loader)
+			}
+			catch (e: ClassNotFoundException) {
+				throw GradleException("$it isn't part of ${packageName.get()}, the static instance index is only useful in apps that use Dairy Core", e)
+			}
+		}
+
+		val examined = roots.flatMap { classNamesIn(it) }.toSortedSet()
+		val holders = examined.filter { name ->
+			try {
+				Class.forName(name, false, loader).declaredFields.any { field ->
+					Modifier.isStatic(field.modifiers) && indexedTypes.any { it.isAssignableFrom(field.type) }
+				}
+			}
+			catch (e: Throwable) {
+				// we can't tell, so it has to be checked at startup
+				true
+			}
+		}.toSet()
+
+		val file = output.file(RESOURCE).get().asFile
+		file.parentFile.mkdirs()
+		file.bufferedWriter().use { writer ->
+			writer.appendLine("# generated by static-instance-index.gradle.kts")
+			writer.appendLine("@package ${packageName.get()}")
+			writer.appendLine("@build ${buildId.get()}")
+			writer.appendLine("@buildConfig ${buildConfig.get()}")
+			examined.forEach { writer.appendLine(if (it in holders) "+$it" else "-$it") }
+		}
+	}
+
+	private fun classNamesIn(root: File): List<String> {
+		val paths =
+			if (root.isDirectory) root.walkTopDown()
+				.filter { it.isFile }
+				.map { it.relativeTo(root).invariantSeparatorsPath }
+				.toList()
+			else ZipFile(root).use { zip -> zip.entries().asSequence().map { it.name }.toList() }
+		return paths
+			.filter { it.endsWith(".class") && !it.endsWith("module-info.class") && !it.startsWith("META-INF/") }
+			.map { it.removeSuffix(".class").replace('/', '.') }
+	}
+
+	companion object {
+		// must match StaticInstanceIndex
+		const val RESOURCE = "META-INF/dairy/static-instances"
+		const val BUILD_ID_FIELD = "DAIRY_STATIC_INSTANCE_INDEX"
+
+		val INDEXED_TYPES = listOf(
+			"dev.frozenmilk.dairy.core.Feature",
+			"dev.frozenmilk.dairy.core.util.configurable.Configurable",
+			"dev.frozenmilk.dairy.core.util.configurable.Configuration",
+		)
+	}
+}
+
+// a new id for each build, so that an index from any other build doesn't match
+val staticInstanceIndexBuildId = UUID.randomUUID().toString()
+
+val androidComponents = extensions.getByType<ApplicationAndroidComponentsExtension>()
+androidComponents.onVariants { variant ->
+	variant.buildConfigFields.put(
+		StaticInstanceIndexTask.BUILD_ID_FIELD,
+		BuildConfigField("String", "\"$staticInstanceIndexBuildId\"", "the build that wrote the Dairy static instance index"),
+	)
+
+	val task = tasks.register<StaticInstanceIndexTask>("${variant.name}StaticInstanceIndex") {
+		packageName.set(variant.applicationId)
+		buildId.set(staticInstanceIndexBuildId)
+		buildConfig.set(variant.namespace.map { "$it.BuildConfig" })
+		bootClasspath.from(androidComponents.sdkComponents.bootClasspath)
+	}
+	variant.artifacts
+		.forScope(ScopedArtifacts.Scope.ALL)
+		.use(task)
+		.toGet(ScopedArtifact.CLASSES, StaticInstanceIndexTask::jars, StaticInstanceIndexTask::directories)
+	variant.sources.resources?.addGeneratedSourceDirectory(task, StaticInstanceIndexTask::output)
+}